@@ -0,0 +1,83 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the controllers' log statements before and after switching to
+ * parameterized messages, both for a level that is switched off (the
+ * per-request DEBUG lines) and one that is on (INFO, formatted by an appender
+ * that discards the result). Compare gc.alloc.rate.norm between the pairs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoggingBenchmark {
+
+    private Logger logger;
+
+    private String username;
+
+    private Long itemId;
+
+    @Setup
+    public void setup() {
+        LoggerContext context = new LoggerContext();
+        FormattingAppender appender = new FormattingAppender();
+        appender.setContext(context);
+        appender.start();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        logger = context.getLogger(LoggingBenchmark.class);
+        username = "user-" + System.nanoTime();
+        itemId = 4242L;
+    }
+
+    @Benchmark
+    public void disabledConcatenated() {
+        logger.debug("Could not find item with id " + itemId + " for user " + username);
+    }
+
+    @Benchmark
+    public void disabledParameterized() {
+        logger.debug("Could not find item with id {} for user {}", itemId, username);
+    }
+
+    @Benchmark
+    public void enabledConcatenated() {
+        logger.info("Could not find item with id " + itemId + " for user " + username);
+    }
+
+    @Benchmark
+    public void enabledParameterized() {
+        logger.info("Could not find item with id {} for user {}", itemId, username);
+    }
+
+    private static final class FormattingAppender extends AppenderBase<ILoggingEvent> {
+        private volatile String lastMessage;
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            lastMessage = event.getFormattedMessage();
+        }
+    }
+}
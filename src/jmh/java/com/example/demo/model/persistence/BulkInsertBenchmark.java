@@ -0,0 +1,168 @@
+package com.example.demo.model.persistence;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Inserts {@code rows} items or orders per operation through Hibernate against
+ * an in-memory H2 database, with JDBC batching off ({@code batchSize=1}) or on.
+ * Ids come from the pooled sequences, so only one sequence call is needed per
+ * 50 rows. Besides throughput it reports {@code rows} and the number of
+ * JDBC {@code statements} Hibernate prepared, both per second; their ratio is
+ * statements per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkInsertBenchmark {
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    @Param({"500"})
+    private int rows;
+
+    private SessionFactory sessionFactory;
+
+    private Statistics statistics;
+
+    private User user;
+
+    private Item widget;
+
+    private Item gadget;
+
+    private long sequence;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long rows;
+        public long statements;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.URL, "jdbc:h2:mem:bulk-insert;DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.USER, "sa")
+                .applySetting(AvailableSettings.PASS, "")
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(batchSize))
+                .applySetting(AvailableSettings.ORDER_INSERTS, "true")
+                .applySetting(AvailableSettings.ORDER_UPDATES, "true")
+                .applySetting(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo")
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, "true")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Item.class)
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Cart.class)
+                .addAnnotatedClass(CartLine.class)
+                .addAnnotatedClass(UserOrder.class)
+                .addAnnotatedClass(UserOrderLine.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        statistics = sessionFactory.getStatistics();
+        inTransaction(session -> {
+            user = new User();
+            user.setUsername("benchmark");
+            user.setPassword("hashed");
+            session.persist(user);
+            widget = createItem(0);
+            gadget = createItem(1);
+            session.persist(widget);
+            session.persist(gadget);
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void insertItems(Counters counters) {
+        long before = statistics.getPrepareStatementCount();
+        inTransaction(session -> {
+            for (int i = 0; i < rows; i++) {
+                session.persist(createItem(sequence++));
+            }
+        });
+        counters.rows += rows;
+        counters.statements += statistics.getPrepareStatementCount() - before;
+    }
+
+    @Benchmark
+    public void insertOrders(Counters counters) {
+        long before = statistics.getPrepareStatementCount();
+        inTransaction(session -> {
+            User owner = session.getReference(User.class, user.getId());
+            Item first = session.getReference(Item.class, widget.getId());
+            Item second = session.getReference(Item.class, gadget.getId());
+            for (int i = 0; i < rows; i++) {
+                UserOrder order = new UserOrder();
+                order.setUser(owner);
+                order.addLine(first, 2, 199);
+                order.addLine(second, 1, 199);
+                order.setTotal(new BigDecimal("5.97"));
+                session.persist(order);
+            }
+        });
+        counters.rows += rows;
+        counters.statements += statistics.getPrepareStatementCount() - before;
+    }
+
+    /**
+     * Runs {@code work} in a transaction. Spring transaction synchronization is
+     * switched on for the duration because {@code ItemChangeListener} defers its
+     * cache and search index updates until after commit; outside of Spring there
+     * is nothing to update, so the deferred work is simply discarded.
+     */
+    private void inTransaction(Consumer<Session> work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            work.accept(session);
+            session.getTransaction().commit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Item createItem(long i) {
+        Item item = new Item();
+        item.setName("Item " + i);
+        item.setPrice(new BigDecimal("1.99"));
+        item.setDescription("Bulk inserted item " + i);
+        return item;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.model.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart mutations and order creation for carts holding {@code cartSize}
+ * distinct items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CartBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int cartSize;
+
+    private Cart cart;
+
+    private Item[] items;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        User user = new User();
+        user.setUsername("benchmark");
+        cart = new Cart();
+        cart.setUser(user);
+        items = new Item[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            items[i] = createItem(i);
+            cart.addItem(items[i], 2);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal addItem() {
+        cart.addItem(nextItem(), 1);
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public int addThenRemoveItem() {
+        Item item = nextItem();
+        cart.addItem(item, 1);
+        return cart.removeItem(item, 1);
+    }
+
+    @Benchmark
+    public UserOrder createOrderFromCart() {
+        return UserOrder.createFromCart(cart);
+    }
+
+    private Item nextItem() {
+        next = (next + 1) % cartSize;
+        return items[next];
+    }
+
+    static Item createItem(long id) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Item " + id);
+        item.setDescription("Benchmark item number " + id);
+        item.setPrice(new BigDecimal("2.99").add(BigDecimal.valueOf(id, 2)));
+        return item;
+    }
+}
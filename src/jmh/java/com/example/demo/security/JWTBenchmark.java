@@ -0,0 +1,70 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The token work done per request by {@link JWTAuthenticationFilter} (sign)
+ * and {@link JWTAuthenticationVerficationFilter} (verify). Verification is
+ * measured three ways: building a verifier per call as the filter originally
+ * did, reusing one verifier, and going through {@link JWTVerificationCache}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JWTBenchmark {
+
+    private String token;
+
+    private JWTVerifier verifier;
+
+    private JWTVerificationCache verificationCache;
+
+    @Setup
+    public void setup() {
+        token = sign();
+        verifier = JWT.require(SecurityConstants.ALGORITHM).build();
+        verificationCache = new JWTVerificationCache(new SimpleMeterRegistry(), 10000);
+    }
+
+    @Benchmark
+    public String sign() {
+        return JWT.create()
+                .withSubject("benchmark")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .sign(SecurityConstants.ALGORITHM);
+    }
+
+    @Benchmark
+    public DecodedJWT verifyWithNewVerifier() {
+        return JWT.require(SecurityConstants.ALGORITHM).build().verify(token);
+    }
+
+    @Benchmark
+    public DecodedJWT verifyWithSharedVerifier() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return verificationCache.verify(token);
+    }
+}
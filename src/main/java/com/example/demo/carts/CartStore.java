@@ -0,0 +1,311 @@
+package com.example.demo.carts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Where cart changes are written.
+ * <p>
+ * By default every change is saved straight away. With
+ * {@code cart.write-behind.enabled=true} carts are kept in memory keyed by
+ * cart id and only the dirty ones are written back, in batches, every
+ * {@code cart.write-behind.flush-interval-ms}, before an order is submitted,
+ * when more than {@code cart.write-behind.max-dirty} carts are pending and on
+ * shutdown. Changes made since the last flush are lost if the process dies,
+ * so the interval bounds how much cart state a crash can cost.
+ * <p>
+ * Each flush re-reads the cart and checks that it is still at the version
+ * the in-memory copy was based on. If something else wrote the cart in the
+ * meantime the in-memory copy is dropped rather than overwriting that write,
+ * and the stock reserved for its changes is released.
+ */
+@Component
+public class CartStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(CartStore.class);
+
+	private final CartRepository cartRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final EntityManager entityManager;
+
+	private final InventoryService inventoryService;
+
+	private final boolean writeBehind;
+
+	private final int batchSize;
+
+	private final int maxDirty;
+
+	private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+	private final MeterRegistry meterRegistry;
+
+	private final Counter conflicts;
+
+	public CartStore(CartRepository cartRepository, PlatformTransactionManager transactionManager,
+			EntityManager entityManager, InventoryService inventoryService, MeterRegistry meterRegistry,
+			@Value("${cart.write-behind.enabled:false}") boolean writeBehind,
+			@Value("${cart.write-behind.batch-size:100}") int batchSize,
+			@Value("${cart.write-behind.max-dirty:10000}") int maxDirty) {
+		this.cartRepository = cartRepository;
+		this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+		this.entityManager = entityManager;
+		this.inventoryService = inventoryService;
+		this.writeBehind = writeBehind;
+		this.batchSize = Math.max(1, batchSize);
+		this.maxDirty = maxDirty;
+		this.meterRegistry = meterRegistry;
+		this.conflicts = Counter.builder("cart.store.conflicts")
+				.description("In-memory carts dropped because the stored cart changed underneath them")
+				.register(meterRegistry);
+		Gauge.builder("cart.store.dirty", dirty, Set::size)
+				.description("Carts with changes that have not been written yet")
+				.register(meterRegistry);
+	}
+
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	public int dirtyCount() {
+		return dirty.size();
+	}
+
+	/**
+	 * Applies {@code change} to the user's cart and returns the result. In
+	 * write-behind mode the returned cart is a copy that is safe to serialise
+	 * while other requests keep changing the cart.
+	 */
+	public Cart modify(User user, Consumer<Cart> change) {
+		if (!writeBehind) {
+			Cart cart = user.getCart();
+			change.accept(cart);
+			cartRepository.save(cart);
+			return cart;
+		}
+		while (true) {
+			Entry entry = entries.computeIfAbsent(user.getCart().getId(), id -> new Entry(user.getCart()));
+			entry.lock.lock();
+			try {
+				if (entry.evicted) {
+					continue;
+				}
+				change.accept(entry.cart);
+				dirty.add(entry.cartId);
+				if (dirty.size() > maxDirty) {
+					flushQuietly(Collections.singletonList(entry), "backpressure", true);
+				}
+				return copyOf(entry.cart);
+			} finally {
+				entry.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes any pending changes to the user's cart and then runs
+	 * {@code action} against the stored cart. Changes to the same cart wait
+	 * until the action is done and then start again from what it left behind.
+	 */
+	public <T> T withFlushedCart(User user, Supplier<T> action) {
+		Entry entry = writeBehind && user.getCart() != null ? entries.get(user.getCart().getId()) : null;
+		if (entry == null) {
+			return action.get();
+		}
+		entry.lock.lock();
+		try {
+			if (!entry.evicted && dirty.contains(entry.cartId)) {
+				flush(Collections.singletonList(entry), "submit", true);
+			}
+			T result = action.get();
+			evict(entry);
+			return result;
+		} finally {
+			entry.lock.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:1000}")
+	public void flushDirty() {
+		flushDirty("scheduled");
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		flushDirty("shutdown");
+	}
+
+	/**
+	 * Flushes dirty carts in batches. A cart that a request is working on
+	 * right now is skipped and picked up by the next round.
+	 */
+	private void flushDirty(String trigger) {
+		if (!writeBehind || dirty.isEmpty()) {
+			return;
+		}
+		List<Entry> batch = new ArrayList<>(batchSize);
+		for (Long cartId : dirty) {
+			Entry entry = entries.get(cartId);
+			if (entry == null) {
+				dirty.remove(cartId);
+				continue;
+			}
+			if (!entry.lock.tryLock()) {
+				continue;
+			}
+			batch.add(entry);
+			if (batch.size() == batchSize) {
+				flushAndUnlock(batch, trigger);
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+		if (!batch.isEmpty()) {
+			flushAndUnlock(batch, trigger);
+		}
+	}
+
+	private void flushAndUnlock(List<Entry> batch, String trigger) {
+		try {
+			flushQuietly(batch, trigger, false);
+		} finally {
+			for (Entry entry : batch) {
+				entry.lock.unlock();
+			}
+		}
+	}
+
+	private void flushQuietly(List<Entry> batch, String trigger, boolean inRequest) {
+		try {
+			flush(batch, trigger, inRequest);
+		} catch (RuntimeException e) {
+			// The carts stay dirty and are retried on the next round.
+			logger.warn("Could not flush {} carts: {}", batch.size(), e.toString());
+		}
+	}
+
+	/**
+	 * Writes the given carts in one transaction. The caller holds the lock of
+	 * every entry in the batch. Inside a request the stored cart may already
+	 * sit in the request's persistence context as it was when the request
+	 * started, so it is refreshed before the version is compared and again
+	 * after it was written.
+	 */
+	private void flush(List<Entry> batch, String trigger, boolean inRequest) {
+		Map<Long, Entry> pending = new HashMap<>();
+		for (Entry entry : batch) {
+			if (!entry.evicted) {
+				pending.put(entry.cartId, entry);
+			}
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		Timer.Sample sample = Timer.start(meterRegistry);
+		Map<Long, Cart> written = new HashMap<>();
+		try {
+			transactionTemplate.execute(status -> {
+				for (Cart stored : cartRepository.findAllById(pending.keySet())) {
+					Entry entry = pending.get(stored.getId());
+					if (inRequest) {
+						entityManager.refresh(stored);
+					}
+					if (stored.getVersion() != null && !stored.getVersion().equals(entry.baseVersion)) {
+						continue;
+					}
+					stored.copyContentsFrom(entry.cart);
+					written.put(stored.getId(), stored);
+				}
+				if (inRequest && !written.isEmpty()) {
+					// New lines point at cached items; reload them so the rest of
+					// the request sees managed items, as a freshly loaded cart would.
+					entityManager.flush();
+					for (Cart stored : written.values()) {
+						entityManager.refresh(stored);
+					}
+				}
+				return null;
+			});
+		} finally {
+			sample.stop(Timer.builder("cart.store.flush")
+					.description("Time taken to write a batch of dirty carts")
+					.tag("trigger", trigger)
+					.register(meterRegistry));
+		}
+		for (Entry entry : pending.values()) {
+			Cart stored = written.get(entry.cartId);
+			if (stored == null) {
+				logger.warn("Cart {} was changed elsewhere, dropping its pending changes", entry.cartId);
+				conflicts.increment();
+				evict(entry);
+				inventoryService.releaseCart(entry.cartId);
+				continue;
+			}
+			entry.baseVersion = stored.getVersion();
+			dirty.remove(entry.cartId);
+		}
+	}
+
+	private void evict(Entry entry) {
+		entry.evicted = true;
+		entries.remove(entry.cartId, entry);
+		dirty.remove(entry.cartId);
+	}
+
+	private static Cart copyOf(Cart source) {
+		Cart copy = new Cart();
+		copy.setId(source.getId());
+		copy.setUser(source.getUser());
+		copy.copyContentsFrom(source);
+		return copy;
+	}
+
+	/**
+	 * A cart held in memory. Every field is guarded by {@code lock}.
+	 */
+	private static final class Entry {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Long cartId;
+		private final Cart cart;
+		private Long baseVersion;
+		private boolean evicted;
+
+		private Entry(Cart stored) {
+			this.cartId = stored.getId();
+			this.cart = copyOf(stored);
+			this.baseVersion = stored.getVersion();
+		}
+	}
+}
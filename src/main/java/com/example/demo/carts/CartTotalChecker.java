@@ -0,0 +1,112 @@
+package com.example.demo.carts;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.CartRepository.CartTotal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Periodically recomputes every cart total from its lines and reports carts
+ * whose stored total disagrees. Totals are maintained incrementally, so any
+ * drift points at a write that bypassed {@code Cart}. Carts are walked in id
+ * order in batches of {@code cart.total-check.batch-size}; drifted totals are
+ * only corrected when {@code cart.total-check.repair} is set.
+ */
+@Component
+public class CartTotalChecker {
+
+	private static final Logger logger = LoggerFactory.getLogger(CartTotalChecker.class);
+
+	private final CartRepository cartRepository;
+
+	private final boolean enabled;
+
+	private final int batchSize;
+
+	private final boolean repair;
+
+	private final Counter drifted;
+
+	private final AtomicInteger lastDrifted = new AtomicInteger();
+
+	private final Timer checkTimer;
+
+	public CartTotalChecker(CartRepository cartRepository, MeterRegistry meterRegistry,
+			@Value("${cart.total-check.enabled:true}") boolean enabled,
+			@Value("${cart.total-check.batch-size:500}") int batchSize,
+			@Value("${cart.total-check.repair:false}") boolean repair) {
+		this.cartRepository = cartRepository;
+		this.enabled = enabled;
+		this.batchSize = Math.max(1, batchSize);
+		this.repair = repair;
+		this.drifted = Counter.builder("cart.total.drift")
+				.description("Carts found with a stored total that does not match their lines")
+				.register(meterRegistry);
+		Gauge.builder("cart.total.drift.last", lastDrifted, AtomicInteger::get)
+				.description("Drifted carts found by the most recent check")
+				.register(meterRegistry);
+		this.checkTimer = Timer.builder("cart.total.check")
+				.description("Time taken to check all cart totals")
+				.register(meterRegistry);
+	}
+
+	@Scheduled(initialDelayString = "${cart.total-check.interval-ms:600000}",
+			fixedDelayString = "${cart.total-check.interval-ms:600000}")
+	public void scheduledCheck() {
+		if (enabled) {
+			checkTotals();
+		}
+	}
+
+	/**
+	 * Checks every cart and returns how many had drifted.
+	 */
+	public int checkTotals() {
+		return checkTimer.record(() -> {
+			int found = 0;
+			int checked = 0;
+			Long afterId = 0L;
+			List<CartTotal> batch;
+			do {
+				batch = cartRepository.findTotalsAfter(afterId, PageRequest.of(0, batchSize));
+				for (CartTotal total : batch) {
+					afterId = total.getId();
+					if (total.getStoredCents() != total.getComputedCents()) {
+						found++;
+						report(total);
+					}
+				}
+				checked += batch.size();
+			} while (batch.size() == batchSize);
+			lastDrifted.set(found);
+			drifted.increment(found);
+			if (found > 0) {
+				logger.warn("{} of {} cart totals had drifted", found, checked);
+			} else {
+				logger.debug("Checked {} cart totals, none had drifted", checked);
+			}
+			return found;
+		});
+	}
+
+	private void report(CartTotal total) {
+		logger.warn("Cart {} total is {} cents but its lines add up to {} cents",
+				total.getId(), total.getStoredCents(), total.getComputedCents());
+		if (repair && cartRepository.repairTotal(total.getId(), total.getStoredCents(), total.getComputedCents()) == 1) {
+			logger.info("Repaired total of cart {}", total.getId());
+		}
+	}
+}
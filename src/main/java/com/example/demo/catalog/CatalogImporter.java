@@ -0,0 +1,341 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.CatalogImportJob;
+import com.example.demo.model.persistence.CatalogImportJob.Format;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CatalogImportJobRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Streams items from CSV or NDJSON into the catalog, inserting new SKUs and
+ * updating existing ones. Records are upserted {@code catalog.import.batch-size}
+ * at a time, each batch in its own transaction together with the job's
+ * checkpoint, and the persistence context is cleared after every batch so a
+ * catalog of any size is imported in constant memory.
+ * <p>
+ * Imports from a request body run on the request thread while the body is
+ * being uploaded. Imports from a file in {@code catalog.import.directory} run
+ * in the background. Either kind can be resumed after a failure from the last
+ * committed batch.
+ */
+@Component
+public class CatalogImporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(CatalogImporter.class);
+
+	private static final int LOGGED_REJECTIONS = 10;
+
+	private final ItemRepository itemRepository;
+
+	private final CatalogImportJobRepository jobRepository;
+
+	private final EntityManager entityManager;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ObjectMapper objectMapper;
+
+	private final Path importDirectory;
+
+	private final int batchSize;
+
+	private final int progressEvery;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "catalog-import");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+	private final Counter inserted;
+
+	private final Counter updated;
+
+	private final Counter rejected;
+
+	private final Timer batchTimer;
+
+	public CatalogImporter(ItemRepository itemRepository, CatalogImportJobRepository jobRepository,
+			EntityManager entityManager, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+			MeterRegistry meterRegistry,
+			@Value("${catalog.import.directory:imports}") String importDirectory,
+			@Value("${catalog.import.batch-size:1000}") int batchSize,
+			@Value("${catalog.import.progress-every:100000}") int progressEvery) {
+		this.itemRepository = itemRepository;
+		this.jobRepository = jobRepository;
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.objectMapper = objectMapper;
+		this.importDirectory = Paths.get(importDirectory).toAbsolutePath().normalize();
+		this.batchSize = Math.max(1, batchSize);
+		this.progressEvery = Math.max(1, progressEvery);
+		this.inserted = records(meterRegistry, "inserted");
+		this.updated = records(meterRegistry, "updated");
+		this.rejected = records(meterRegistry, "rejected");
+		this.batchTimer = Timer.builder("catalog.import.batch")
+				.description("Time taken to upsert and commit one batch of imported items")
+				.register(meterRegistry);
+	}
+
+	public Optional<CatalogImportJob> findJob(Long id) {
+		return jobRepository.findById(id);
+	}
+
+	/**
+	 * Imports {@code body} on the calling thread. To resume a failed import
+	 * pass its job and send the same body again.
+	 */
+	public CatalogImportJob importRequestBody(Format format, CatalogImportJob resume, InputStream body) {
+		CatalogImportJob job;
+		if (resume == null) {
+			job = jobRepository.save(new CatalogImportJob(format, CatalogImportJob.REQUEST_BODY));
+		} else {
+			if (!resume.isFromRequestBody() || resume.getFormat() != format) {
+				throw new IllegalArgumentException("Import " + resume.getId() + " was not a " + format + " request body");
+			}
+			job = markResumed(resume);
+		}
+		return run(job, body);
+	}
+
+	/**
+	 * Starts importing a file from the import directory in the background.
+	 */
+	public CatalogImportJob importFile(String name, Format format) {
+		Path file = resolve(name);
+		CatalogImportJob job = jobRepository.save(new CatalogImportJob(format, importDirectory.relativize(file).toString()));
+		return submit(job, file);
+	}
+
+	/**
+	 * Restarts a failed file import in the background from its checkpoint.
+	 */
+	public CatalogImportJob resumeFile(CatalogImportJob job) {
+		if (job.isFromRequestBody()) {
+			throw new IllegalArgumentException("Import " + job.getId() + " read a request body; send it again to resume");
+		}
+		Path file = resolve(job.getSource());
+		return submit(markResumed(job), file);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private CatalogImportJob submit(CatalogImportJob job, Path file) {
+		activeJobs.add(job.getId());
+		try {
+			executor.execute(() -> {
+				try (InputStream in = Files.newInputStream(file)) {
+					run(job, in);
+				} catch (IOException e) {
+					fail(job, e);
+				} finally {
+					activeJobs.remove(job.getId());
+				}
+			});
+		} catch (RuntimeException e) {
+			activeJobs.remove(job.getId());
+			throw e;
+		}
+		return job;
+	}
+
+	private CatalogImportJob markResumed(CatalogImportJob job) {
+		if (job.getStatus() == CatalogImportJob.Status.COMPLETED) {
+			throw new IllegalStateException("Import " + job.getId() + " has already completed");
+		}
+		if (activeJobs.contains(job.getId())) {
+			throw new IllegalStateException("Import " + job.getId() + " is still running");
+		}
+		job.resumed();
+		return jobRepository.save(job);
+	}
+
+	private CatalogImportJob run(CatalogImportJob job, InputStream source) {
+		Long jobId = job.getId();
+		activeJobs.add(jobId);
+		long runStart = System.nanoTime();
+		long runRecords = 0;
+		long skip = job.getRecordsCommitted();
+		try (CatalogRecordReader reader = CatalogRecordReader.open(job.getFormat(),
+				new InputStreamReader(source, StandardCharsets.UTF_8), objectMapper)) {
+			for (long i = 0; i < skip; i++) {
+				if (reader.next() == null) {
+					throw new IllegalStateException("Source has only " + i + " records but " + skip + " were already imported");
+				}
+			}
+			if (skip > 0) {
+				logger.info("Resuming catalog import {} after {} records", jobId, skip);
+			}
+			List<CatalogRecord> batch = new ArrayList<>(batchSize);
+			CatalogRecord record;
+			while ((record = reader.next()) != null) {
+				batch.add(record);
+				if (batch.size() == batchSize) {
+					job = commit(jobId, batch);
+					runRecords += batch.size();
+					batch.clear();
+					if (runRecords % progressEvery < batchSize) {
+						logProgress(job, runRecords, runStart);
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				job = commit(jobId, batch);
+				runRecords += batch.size();
+			}
+			job = transactionTemplate.execute(status -> {
+				CatalogImportJob current = jobRepository.findById(jobId).get();
+				current.completed();
+				return current;
+			});
+			logProgress(job, runRecords, runStart);
+			return job;
+		} catch (OptimisticLockingFailureException e) {
+			// Someone else is running this import; leave its state alone.
+			throw e;
+		} catch (IOException | RuntimeException e) {
+			return fail(job, e);
+		} finally {
+			activeJobs.remove(jobId);
+		}
+	}
+
+	/**
+	 * Upserts one batch and advances the job's checkpoint in the same
+	 * transaction. When a batch names the same SKU more than once the last
+	 * record wins.
+	 */
+	private CatalogImportJob commit(Long jobId, List<CatalogRecord> batch) {
+		return batchTimer.record(() -> transactionTemplate.execute(status -> {
+			Map<String, CatalogRecord> bySku = new LinkedHashMap<>();
+			int rejectedRecords = 0;
+			for (CatalogRecord record : batch) {
+				String problem = record.validate();
+				if (problem == null) {
+					bySku.put(record.getSku().trim(), record);
+					continue;
+				}
+				if (rejectedRecords++ < LOGGED_REJECTIONS) {
+					logger.warn("Catalog import {} rejected a record: {}", jobId, problem);
+				}
+			}
+			Map<String, Item> existing = new HashMap<>();
+			if (!bySku.isEmpty()) {
+				for (Item item : itemRepository.findBySkuIn(bySku.keySet())) {
+					existing.put(item.getSku(), item);
+				}
+			}
+			int insertedItems = 0;
+			int updatedItems = 0;
+			for (Map.Entry<String, CatalogRecord> entry : bySku.entrySet()) {
+				Item item = existing.get(entry.getKey());
+				if (item == null) {
+					item = new Item();
+					item.setSku(entry.getKey());
+					apply(item, entry.getValue());
+					entityManager.persist(item);
+					insertedItems++;
+				} else if (apply(item, entry.getValue())) {
+					updatedItems++;
+				}
+			}
+			CatalogImportJob current = jobRepository.findById(jobId).get();
+			current.batchCommitted(batch.size(), insertedItems, updatedItems, rejectedRecords);
+			entityManager.flush();
+			entityManager.clear();
+			inserted.increment(insertedItems);
+			updated.increment(updatedItems);
+			rejected.increment(rejectedRecords);
+			return current;
+		}));
+	}
+
+	/**
+	 * Copies the record onto the item and reports whether anything changed,
+	 * so unchanged rows are not rewritten.
+	 */
+	private static boolean apply(Item item, CatalogRecord record) {
+		String description = record.getDescription() == null ? "" : record.getDescription();
+		boolean changed = !Objects.equals(item.getName(), record.getName())
+				|| item.getPrice() == null || item.getPrice().compareTo(record.getPrice()) != 0
+				|| !Objects.equals(item.getDescription(), description);
+		if (changed) {
+			item.setName(record.getName());
+			item.setPrice(record.getPrice());
+			item.setDescription(description);
+		}
+		return changed;
+	}
+
+	private CatalogImportJob fail(CatalogImportJob job, Exception e) {
+		logger.error("Catalog import {} failed after {} records: {}", job.getId(), job.getRecordsCommitted(), e.toString());
+		Long jobId = job.getId();
+		return transactionTemplate.execute(status -> {
+			CatalogImportJob current = jobRepository.findById(jobId).get();
+			current.failed(e.getMessage() == null ? e.toString() : e.getMessage());
+			return current;
+		});
+	}
+
+	private void logProgress(CatalogImportJob job, long runRecords, long runStart) {
+		double seconds = Math.max(1e-3, (System.nanoTime() - runStart) / 1e9);
+		logger.info("Catalog import {} {}: {} records ({} inserted, {} updated, {} rejected), {} records/s",
+				job.getId(), job.getStatus(), job.getRecordsCommitted(), job.getInserted(), job.getUpdated(),
+				job.getRejected(), Math.round(runRecords / seconds));
+	}
+
+	private Path resolve(String name) {
+		Path file = importDirectory.resolve(name).normalize();
+		if (!file.startsWith(importDirectory) || !Files.isRegularFile(file)) {
+			throw new IllegalArgumentException("No import file named " + name);
+		}
+		return file;
+	}
+
+	private static Counter records(MeterRegistry meterRegistry, String outcome) {
+		return Counter.builder("catalog.import.records")
+				.description("Catalog records processed by imports")
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.demo.catalog;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * One item as read from an import source. A record the reader could not make
+ * sense of carries a {@code problem} instead of usable fields.
+ */
+public class CatalogRecord {
+
+	static final int MAX_SKU_LENGTH = 64;
+
+	private String sku;
+
+	private String name;
+
+	private BigDecimal price;
+
+	private String description;
+
+	private String problem;
+
+	public CatalogRecord() {
+	}
+
+	public CatalogRecord(String sku, String name, BigDecimal price, String description) {
+		this.sku = sku;
+		this.name = name;
+		this.price = price;
+		this.description = description;
+	}
+
+	static CatalogRecord unreadable(String problem) {
+		CatalogRecord record = new CatalogRecord();
+		record.problem = problem;
+		return record;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+
+	public void setSku(String sku) {
+		this.sku = sku;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public void setPrice(BigDecimal price) {
+		this.price = price;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * Returns why this record cannot be imported, or {@code null} if it can.
+	 * Anything that would not fit the item columns is caught here, because a
+	 * single record the database refuses fails the flush of its whole batch.
+	 */
+	public String validate() {
+		if (problem != null) {
+			return problem;
+		}
+		if (sku == null || sku.trim().isEmpty() || sku.length() > MAX_SKU_LENGTH) {
+			return "sku must be between 1 and " + MAX_SKU_LENGTH + " characters";
+		}
+		if (name == null || name.trim().isEmpty() || name.length() > Item.MAX_NAME_LENGTH) {
+			return "name must be between 1 and " + Item.MAX_NAME_LENGTH + " characters";
+		}
+		if (description != null && description.length() > Item.MAX_DESCRIPTION_LENGTH) {
+			return "description must be at most " + Item.MAX_DESCRIPTION_LENGTH + " characters";
+		}
+		if (price == null || price.signum() < 0) {
+			return "price must not be negative";
+		}
+		BigDecimal exact = price.stripTrailingZeros();
+		if (exact.scale() > Item.PRICE_SCALE
+				|| exact.precision() - exact.scale() > Item.PRICE_PRECISION - Item.PRICE_SCALE) {
+			return "price must have at most " + (Item.PRICE_PRECISION - Item.PRICE_SCALE)
+					+ " digits before and " + Item.PRICE_SCALE + " after the decimal point";
+		}
+		return null;
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.catalog;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.example.demo.model.persistence.CatalogImportJob.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Pulls import records off a character stream one at a time, so memory use
+ * is bounded by the size of a single record rather than of the source.
+ * Blank lines are skipped and do not count as records, which keeps record
+ * positions stable when an import is resumed.
+ */
+public abstract class CatalogRecordReader implements Closeable {
+
+	protected final BufferedReader in;
+
+	protected CatalogRecordReader(Reader in) {
+		this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+	}
+
+	public static CatalogRecordReader open(Format format, Reader in, ObjectMapper objectMapper) throws IOException {
+		return format == Format.CSV ? new CsvCatalogRecordReader(in) : new NdjsonCatalogRecordReader(in, objectMapper);
+	}
+
+	/**
+	 * Returns the next record, or {@code null} once the source is exhausted.
+	 * Records that cannot be parsed are returned with a problem set; only a
+	 * source that cannot be read any further results in an exception.
+	 */
+	public abstract CatalogRecord next() throws IOException;
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
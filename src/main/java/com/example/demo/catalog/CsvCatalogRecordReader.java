@@ -0,0 +1,121 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads RFC 4180 style CSV. The first row is a header naming the columns;
+ * {@code sku}, {@code name} and {@code price} are required, {@code description}
+ * is optional and other columns are ignored. Quoted fields may contain
+ * commas, doubled quotes and line breaks.
+ */
+class CsvCatalogRecordReader extends CatalogRecordReader {
+
+	static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+	private final int skuColumn;
+
+	private final int nameColumn;
+
+	private final int priceColumn;
+
+	private final int descriptionColumn;
+
+	CsvCatalogRecordReader(Reader in) throws IOException {
+		super(in);
+		List<String> header = readRow();
+		if (header == null) {
+			header = new ArrayList<>();
+		}
+		skuColumn = column(header, "sku", true);
+		nameColumn = column(header, "name", true);
+		priceColumn = column(header, "price", true);
+		descriptionColumn = column(header, "description", false);
+	}
+
+	@Override
+	public CatalogRecord next() throws IOException {
+		List<String> row;
+		do {
+			row = readRow();
+			if (row == null) {
+				return null;
+			}
+		} while (row.size() == 1 && row.get(0).trim().isEmpty());
+		if (row.size() <= Math.max(skuColumn, Math.max(nameColumn, priceColumn))) {
+			return CatalogRecord.unreadable("expected at least " + (priceColumn + 1) + " columns but found " + row.size());
+		}
+		BigDecimal price;
+		try {
+			price = new BigDecimal(row.get(priceColumn).trim());
+		} catch (NumberFormatException e) {
+			return CatalogRecord.unreadable("invalid price '" + row.get(priceColumn) + "'");
+		}
+		String description = descriptionColumn >= 0 && descriptionColumn < row.size() ? row.get(descriptionColumn) : null;
+		return new CatalogRecord(row.get(skuColumn).trim(), row.get(nameColumn), price, description);
+	}
+
+	private List<String> readRow() throws IOException {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean read = false;
+		int c;
+		while ((c = in.read()) != -1) {
+			read = true;
+			if (quoted) {
+				if (c == '"') {
+					in.mark(1);
+					int next = in.read();
+					if (next == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						if (next != -1) {
+							in.reset();
+						}
+					}
+				} else {
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\n') {
+				fields.add(field.toString());
+				return fields;
+			} else if (c != '\r') {
+				field.append((char) c);
+			}
+			if (field.length() > MAX_FIELD_LENGTH) {
+				throw new IOException("CSV field longer than " + MAX_FIELD_LENGTH + " characters");
+			}
+		}
+		if (quoted) {
+			throw new IOException("CSV ends inside a quoted field");
+		}
+		if (!read) {
+			return null;
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static int column(List<String> header, String name, boolean required) {
+		for (int i = 0; i < header.size(); i++) {
+			if (header.get(i).trim().toLowerCase(Locale.ROOT).equals(name)) {
+				return i;
+			}
+		}
+		if (required) {
+			throw new IllegalArgumentException("CSV header has no '" + name + "' column");
+		}
+		return -1;
+	}
+}
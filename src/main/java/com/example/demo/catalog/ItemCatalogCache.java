@@ -0,0 +1,159 @@
+package com.example.demo.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.datasource.ReplicaScope;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache in front of {@link ItemRepository}. The catalog changes
+ * rarely, so lookups by id and name are served from memory and entries are
+ * dropped either when they expire or when {@link ItemChangeListener} reports
+ * that an item write was committed.
+ * <p>
+ * Inside a {@link ReplicaScope} the cache is only read. A miss is loaded
+ * without being stored here or in the second-level cache: a replica read
+ * racing an invalidation would otherwise put the pre-commit row back, and
+ * cart writes would price lines from it until the entry expired.
+ */
+@Component
+public class ItemCatalogCache {
+
+	private static final String ALL_ITEMS = "*";
+
+	private final ItemRepository itemRepository;
+
+	private final LoadingCache<Long, Optional<Item>> itemsById;
+
+	private final LoadingCache<String, List<Item>> itemsByName;
+
+	private final LoadingCache<String, List<Item>> allItems;
+
+	public ItemCatalogCache(ItemRepository itemRepository, MeterRegistry meterRegistry,
+			@Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds,
+			@Value("${catalog.cache.max-size:10000}") long maxSize) {
+		this.itemRepository = itemRepository;
+		this.itemsById = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build(new ItemsByIdLoader(itemRepository));
+		this.itemsByName = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build(itemRepository::findByName);
+		this.allItems = Caffeine.newBuilder()
+				.maximumSize(1)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build(key -> itemRepository.findAll());
+		CaffeineCacheMetrics.monitor(meterRegistry, itemsById, "catalog.items.byId");
+		CaffeineCacheMetrics.monitor(meterRegistry, itemsByName, "catalog.items.byName");
+		CaffeineCacheMetrics.monitor(meterRegistry, allItems, "catalog.items.all");
+	}
+
+	public Optional<Item> findById(Long id) {
+		if (ReplicaScope.isActive()) {
+			return findAllById(Collections.singleton(id)).get(id);
+		}
+		return itemsById.get(id);
+	}
+
+	/**
+	 * Looks up several items at once. Whatever is not cached yet is fetched
+	 * with a single {@code findAllById} query. Ids that do not exist map to an
+	 * empty {@link Optional}.
+	 */
+	public Map<Long, Optional<Item>> findAllById(Collection<Long> ids) {
+		if (!ReplicaScope.isActive()) {
+			return itemsById.getAll(ids);
+		}
+		Map<Long, Optional<Item>> items = new HashMap<>(itemsById.getAllPresent(ids));
+		List<Long> missing = new ArrayList<>();
+		for (Long id : ids) {
+			if (!items.containsKey(id)) {
+				items.put(id, Optional.empty());
+				missing.add(id);
+			}
+		}
+		if (!missing.isEmpty()) {
+			itemRepository.findUncachedByIdIn(missing).forEach(item -> items.put(item.getId(), Optional.of(item)));
+		}
+		return items;
+	}
+
+	public List<Item> findByName(String name) {
+		if (ReplicaScope.isActive()) {
+			List<Item> items = itemsByName.getIfPresent(name);
+			return items != null ? items : itemRepository.findUncachedByName(name);
+		}
+		return itemsByName.get(name);
+	}
+
+	public List<Item> findAll() {
+		if (ReplicaScope.isActive()) {
+			List<Item> items = allItems.getIfPresent(ALL_ITEMS);
+			return items != null ? items : itemRepository.findAllUncached();
+		}
+		return allItems.get(ALL_ITEMS);
+	}
+
+	/**
+	 * Drops everything cached for the given item. Name lookups and the full
+	 * listing are cleared as well since the item may have been renamed.
+	 */
+	public void invalidate(Long itemId) {
+		itemsById.invalidate(itemId);
+		itemsByName.invalidateAll();
+		allItems.invalidateAll();
+	}
+
+	public void invalidateAll() {
+		itemsById.invalidateAll();
+		itemsByName.invalidateAll();
+		allItems.invalidateAll();
+	}
+
+	private static final class ItemsByIdLoader implements CacheLoader<Long, Optional<Item>> {
+		private final ItemRepository itemRepository;
+
+		private ItemsByIdLoader(ItemRepository itemRepository) {
+			this.itemRepository = itemRepository;
+		}
+
+		@Override
+		public Optional<Item> load(Long id) {
+			return itemRepository.findById(id);
+		}
+
+		@Override
+		public Map<Long, Optional<Item>> loadAll(Iterable<? extends Long> ids) {
+			Map<Long, Optional<Item>> items = new HashMap<>();
+			for (Long id : ids) {
+				items.put(id, Optional.empty());
+			}
+			for (Item item : itemRepository.findAllById(items.keySet())) {
+				items.put(item.getId(), Optional.of(item));
+			}
+			return items;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes the whole catalog as newline-delimited JSON straight from a JPA
+ * result stream. Every row is detached once written, so memory use does not
+ * depend on the size of the catalog.
+ */
+@Component
+public class ItemCatalogExporter {
+
+	public static final String NDJSON = "application/x-ndjson";
+
+	private static final int FLUSH_EVERY = 500;
+
+	private final ItemRepository itemRepository;
+
+	private final EntityManager entityManager;
+
+	private final ObjectMapper objectMapper;
+
+	public ItemCatalogExporter(ItemRepository itemRepository, EntityManager entityManager,
+			ObjectMapper objectMapper) {
+		this.itemRepository = itemRepository;
+		this.entityManager = entityManager;
+		this.objectMapper = objectMapper;
+	}
+
+	@Transactional(readOnly = true)
+	public long writeNdjson(OutputStream out) throws IOException {
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.setRootValueSeparator(null);
+		long written = 0;
+		try (Stream<Item> items = itemRepository.streamAllOrderById()) {
+			Iterator<Item> iterator = items.iterator();
+			while (iterator.hasNext()) {
+				Item item = iterator.next();
+				generator.writeObject(item);
+				generator.writeRaw('\n');
+				entityManager.detach(item);
+				if (++written % FLUSH_EVERY == 0) {
+					generator.flush();
+				}
+			}
+		}
+		generator.flush();
+		return written;
+	}
+}
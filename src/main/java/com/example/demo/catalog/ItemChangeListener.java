@@ -0,0 +1,65 @@
+package com.example.demo.catalog;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * JPA entity listener that keeps the in-memory catalog in step with writes to
+ * {@link Item}. Hibernate resolves it through Spring, so collaborators are
+ * injected like in any other bean. They are looked up lazily because the
+ * listener is created while the entity manager factory is still being built.
+ * <p>
+ * Changes are applied after commit so that a concurrent reader cannot
+ * re-populate the cache with the pre-commit row, and a rolled back write
+ * never reaches the search index.
+ */
+public class ItemChangeListener {
+
+	@Autowired
+	@Lazy
+	private ItemCatalogCache catalogCache;
+
+	@Autowired
+	@Lazy
+	private ItemSearchIndex searchIndex;
+
+	@PostPersist
+	@PostUpdate
+	public void onItemSaved(Item item) {
+		Long itemId = item.getId();
+		runAfterCommit(() -> {
+			catalogCache.invalidate(itemId);
+			searchIndex.index(item);
+		});
+	}
+
+	@PostRemove
+	public void onItemRemoved(Item item) {
+		Long itemId = item.getId();
+		runAfterCommit(() -> {
+			catalogCache.invalidate(itemId);
+			searchIndex.remove(itemId);
+		});
+	}
+
+	private static void runAfterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
@@ -0,0 +1,354 @@
+package com.example.demo.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * In-memory inverted index over item names and descriptions.
+ * <p>
+ * Terms live in a sorted map so prefixes are a range scan. Substring matches
+ * go through a trigram-to-term map and typo-tolerant matches (one edit)
+ * through a map of single-character deletions, so no query has to walk the
+ * whole vocabulary. The index is built once at startup and then kept current
+ * by {@link ItemChangeListener}; writers are serialised, readers never block.
+ */
+@Component
+public class ItemSearchIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(ItemSearchIndex.class);
+
+	private static final int NAME = 1;
+	private static final int DESCRIPTION = 2;
+
+	private static final int EXACT_SCORE = 10;
+	private static final int PREFIX_SCORE = 6;
+	private static final int SUBSTRING_SCORE = 3;
+	private static final int FUZZY_SCORE = 2;
+
+	private static final int MIN_FUZZY_LENGTH = 4;
+	private static final int MAX_EXPANSIONS = 64;
+	private static final int REBUILD_PAGE_SIZE = 1000;
+
+	private final ItemRepository itemRepository;
+
+	private final Map<Long, Item> documents = new ConcurrentHashMap<>();
+
+	private final NavigableMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+	private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> deletions = new ConcurrentHashMap<>();
+
+	public ItemSearchIndex(ItemRepository itemRepository) {
+		this.itemRepository = itemRepository;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		long after = 0L;
+		int indexed = 0;
+		List<Item> page;
+		do {
+			page = itemRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, REBUILD_PAGE_SIZE));
+			for (Item item : page) {
+				index(item);
+				after = item.getId();
+			}
+			indexed += page.size();
+		} while (page.size() == REBUILD_PAGE_SIZE);
+		logger.info("Indexed {} items for search in {} ms", indexed, System.currentTimeMillis() - start);
+	}
+
+	public synchronized void index(Item item) {
+		remove(item.getId());
+		Item copy = copyOf(item);
+		documents.put(copy.getId(), copy);
+		Map<String, Integer> fields = new HashMap<>();
+		for (String term : tokenize(copy.getName())) {
+			fields.merge(term, NAME, (a, b) -> a | b);
+		}
+		for (String term : tokenize(copy.getDescription())) {
+			fields.merge(term, DESCRIPTION, (a, b) -> a | b);
+		}
+		for (Map.Entry<String, Integer> field : fields.entrySet()) {
+			addPosting(field.getKey(), copy.getId(), field.getValue());
+		}
+	}
+
+	public synchronized void remove(Long itemId) {
+		Item previous = documents.remove(itemId);
+		if (previous == null) {
+			return;
+		}
+		Set<String> terms = new LinkedHashSet<>(tokenize(previous.getName()));
+		terms.addAll(tokenize(previous.getDescription()));
+		for (String term : terms) {
+			removePosting(term, itemId);
+		}
+	}
+
+	public int size() {
+		return documents.size();
+	}
+
+	/**
+	 * Returns up to {@code limit} items ranked first by how many query terms
+	 * they match and then by match quality, where exact beats prefix beats
+	 * substring beats a one-edit typo and name matches count double.
+	 */
+	public List<Item> search(String query, int limit) {
+		Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+		if (queryTerms.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+		Map<Long, Score> scores = new HashMap<>();
+		for (String queryTerm : queryTerms) {
+			Map<Long, Integer> best = new HashMap<>();
+			for (Map.Entry<String, Integer> match : matchTerms(queryTerm).entrySet()) {
+				Map<Long, Integer> docs = postings.get(match.getKey());
+				if (docs == null) {
+					continue;
+				}
+				for (Map.Entry<Long, Integer> doc : docs.entrySet()) {
+					int weight = (doc.getValue() & NAME) != 0 ? 2 : 1;
+					best.merge(doc.getKey(), match.getValue() * weight, Math::max);
+				}
+			}
+			for (Map.Entry<Long, Integer> hit : best.entrySet()) {
+				scores.computeIfAbsent(hit.getKey(), id -> new Score()).add(hit.getValue());
+			}
+		}
+
+		Comparator<Map.Entry<Long, Score>> ranking = Comparator
+				.comparingInt((Map.Entry<Long, Score> e) -> e.getValue().matchedTerms)
+				.thenComparingInt(e -> e.getValue().points)
+				.thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+		PriorityQueue<Map.Entry<Long, Score>> top = new PriorityQueue<>(limit + 1, ranking);
+		for (Map.Entry<Long, Score> entry : scores.entrySet()) {
+			top.offer(entry);
+			if (top.size() > limit) {
+				top.poll();
+			}
+		}
+		List<Item> results = new ArrayList<>(top.size());
+		while (!top.isEmpty()) {
+			Item item = documents.get(top.poll().getKey());
+			if (item != null) {
+				results.add(item);
+			}
+		}
+		Collections.reverse(results);
+		return results;
+	}
+
+	/**
+	 * Expands one query term into the indexed terms it matches, each with the
+	 * best score of the ways it matched.
+	 */
+	private Map<String, Integer> matchTerms(String term) {
+		Map<String, Integer> matches = new HashMap<>();
+		int expansions = 0;
+		for (String candidate : postings.subMap(term, true, term + Character.MAX_VALUE, false).keySet()) {
+			matches.put(candidate, candidate.equals(term) ? EXACT_SCORE : PREFIX_SCORE);
+			if (++expansions >= MAX_EXPANSIONS) {
+				break;
+			}
+		}
+		if (term.length() >= 3) {
+			for (String candidate : substringCandidates(term)) {
+				if (candidate.contains(term)) {
+					matches.merge(candidate, SUBSTRING_SCORE, Math::max);
+				}
+			}
+		}
+		if (term.length() >= MIN_FUZZY_LENGTH) {
+			for (String variant : deletionVariants(term)) {
+				Set<String> candidates = deletions.get(variant);
+				if (candidates == null) {
+					continue;
+				}
+				for (String candidate : candidates) {
+					if (withinOneEdit(term, candidate)) {
+						matches.merge(candidate, FUZZY_SCORE, Math::max);
+					}
+				}
+			}
+		}
+		return matches;
+	}
+
+	private Set<String> substringCandidates(String term) {
+		Set<String> candidates = null;
+		for (int i = 0; i + 3 <= term.length(); i++) {
+			Set<String> terms = trigrams.get(term.substring(i, i + 3));
+			if (terms == null) {
+				return Collections.emptySet();
+			}
+			if (candidates == null) {
+				candidates = new LinkedHashSet<>(terms);
+			} else {
+				candidates.retainAll(terms);
+			}
+			if (candidates.isEmpty()) {
+				break;
+			}
+		}
+		return candidates == null ? Collections.<String>emptySet() : candidates;
+	}
+
+	private void addPosting(String term, Long itemId, int fields) {
+		Map<Long, Integer> docs = postings.get(term);
+		if (docs == null) {
+			docs = new ConcurrentHashMap<>();
+			postings.put(term, docs);
+			for (String gram : trigramsOf(term)) {
+				trigrams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(term);
+			}
+			if (term.length() >= MIN_FUZZY_LENGTH) {
+				for (String variant : deletionVariants(term)) {
+					deletions.computeIfAbsent(variant, v -> ConcurrentHashMap.newKeySet()).add(term);
+				}
+			}
+		}
+		docs.put(itemId, fields);
+	}
+
+	private void removePosting(String term, Long itemId) {
+		Map<Long, Integer> docs = postings.get(term);
+		if (docs == null) {
+			return;
+		}
+		docs.remove(itemId);
+		if (!docs.isEmpty()) {
+			return;
+		}
+		postings.remove(term);
+		for (String gram : trigramsOf(term)) {
+			removeFrom(trigrams, gram, term);
+		}
+		if (term.length() >= MIN_FUZZY_LENGTH) {
+			for (String variant : deletionVariants(term)) {
+				removeFrom(deletions, variant, term);
+			}
+		}
+	}
+
+	private static void removeFrom(Map<String, Set<String>> map, String key, String term) {
+		Set<String> terms = map.get(key);
+		if (terms != null) {
+			terms.remove(term);
+			if (terms.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		StringBuilder current = new StringBuilder();
+		for (int i = 0; i <= text.length(); i++) {
+			char c = i < text.length() ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c)) {
+				current.append(Character.toLowerCase(c));
+			} else if (current.length() > 0) {
+				if (current.length() > 1) {
+					tokens.add(current.toString());
+				}
+				current.setLength(0);
+			}
+		}
+		return tokens;
+	}
+
+	private static List<String> trigramsOf(String term) {
+		List<String> grams = new ArrayList<>();
+		for (int i = 0; i + 3 <= term.length(); i++) {
+			grams.add(term.substring(i, i + 3));
+		}
+		return grams;
+	}
+
+	private static Set<String> deletionVariants(String term) {
+		Set<String> variants = new LinkedHashSet<>();
+		variants.add(term);
+		for (int i = 0; i < term.length(); i++) {
+			variants.add(term.substring(0, i) + term.substring(i + 1));
+		}
+		return variants;
+	}
+
+	/**
+	 * True if the two terms differ by at most one insertion, deletion,
+	 * substitution or transposition of adjacent characters.
+	 */
+	static boolean withinOneEdit(String a, String b) {
+		if (Math.abs(a.length() - b.length()) > 1) {
+			return false;
+		}
+		int prefix = 0;
+		while (prefix < a.length() && prefix < b.length() && a.charAt(prefix) == b.charAt(prefix)) {
+			prefix++;
+		}
+		if (prefix == a.length() && prefix == b.length()) {
+			return true;
+		}
+		if (a.length() == b.length()) {
+			String aRest = a.substring(prefix + 1);
+			String bRest = b.substring(prefix + 1);
+			if (aRest.equals(bRest)) {
+				return true;
+			}
+			return prefix + 1 < a.length()
+					&& a.charAt(prefix) == b.charAt(prefix + 1)
+					&& a.charAt(prefix + 1) == b.charAt(prefix)
+					&& a.substring(prefix + 2).equals(b.substring(prefix + 2));
+		}
+		String longer = a.length() > b.length() ? a : b;
+		String shorter = a.length() > b.length() ? b : a;
+		return longer.substring(prefix + 1).equals(shorter.substring(prefix));
+	}
+
+	private static Item copyOf(Item item) {
+		Item copy = new Item();
+		copy.setId(item.getId());
+		copy.setSku(item.getSku());
+		copy.setName(item.getName());
+		copy.setPrice(item.getPrice());
+		copy.setDescription(item.getDescription());
+		return copy;
+	}
+
+	private static final class Score {
+		private int matchedTerms;
+		private int points;
+
+		private void add(int value) {
+			matchedTerms++;
+			points += value;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reads one JSON object per line with the fields {@code sku}, {@code name},
+ * {@code price} and {@code description}. A line longer than
+ * {@value #MAX_LINE_LENGTH} characters is skipped as unreadable rather than
+ * held in memory.
+ */
+class NdjsonCatalogRecordReader extends CatalogRecordReader {
+
+	static final int MAX_LINE_LENGTH = 256 * 1024;
+
+	private final ObjectReader reader;
+
+	private boolean truncated;
+
+	NdjsonCatalogRecordReader(Reader in, ObjectMapper objectMapper) {
+		super(in);
+		this.reader = objectMapper.readerFor(CatalogRecord.class);
+	}
+
+	@Override
+	public CatalogRecord next() throws IOException {
+		String line;
+		do {
+			line = readLine();
+			if (line == null) {
+				return null;
+			}
+		} while (!truncated && line.trim().isEmpty());
+		if (truncated) {
+			return CatalogRecord.unreadable("line longer than " + MAX_LINE_LENGTH + " characters");
+		}
+		try {
+			return reader.readValue(line);
+		} catch (JsonProcessingException e) {
+			return CatalogRecord.unreadable("malformed JSON: " + e.getOriginalMessage());
+		}
+	}
+
+	/**
+	 * Reads up to the next line break, keeping at most
+	 * {@value #MAX_LINE_LENGTH} characters and setting {@code truncated} if
+	 * there were more.
+	 */
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		truncated = false;
+		boolean read = false;
+		int c;
+		while ((c = in.read()) != -1) {
+			read = true;
+			if (c == '\n') {
+				return line.toString();
+			}
+			if (line.length() < MAX_LINE_LENGTH) {
+				line.append((char) c);
+			} else {
+				truncated = true;
+			}
+		}
+		return read ? line.toString() : null;
+	}
+}
@@ -1,7 +1,14 @@
 package com.example.demo.controllers;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,13 +20,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.carts.CartStore;
+import com.example.demo.catalog.ItemCatalogCache;
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.metrics.ShopMetrics;
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BulkModifyCartRequest;
+import com.example.demo.model.requests.CartOperation;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -29,53 +42,176 @@ public class CartController {
 	private UserRepository userRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private CartStore cartStore;
 	
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalogCache itemCatalog;
+
+	@Autowired
+	private ShopMetrics shopMetrics;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	private static final int MAX_BULK_OPERATIONS = 200;
 
 	private static final Logger logger = LoggerFactory.getLogger(CartController.class);
 
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		logger.info("Received request to add item(s) to cart");
+	public ResponseEntity<CartResponse> addTocart(@RequestBody ModifyCartRequest request) {
+		logger.debug("Received request to add item(s) to cart");
 		User user = userRepository.findByUsername(request.getUsername());
 		if(user == null) {
-			logger.error("Could not find user with username " + request.getUsername());
+			logger.error("Could not find user with username {}", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
 		if(!item.isPresent()) {
-			logger.error("Could not find item with id " + request.getItemId());
+			logger.error("Could not find item with id {}", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
-		logger.info("Successfully added item(s) to cart");
-		return ResponseEntity.ok(cart);
+		Cart cart;
+		try {
+			cart = modifyReserving(user,
+					c -> Collections.singletonMap(item.get().getId(),
+							stockChange(c, item.get(), CartOperation.Type.ADD, request.getQuantity(), 0)),
+					c -> c.addItem(item.get(), request.getQuantity()));
+		} catch(ArithmeticException e) {
+			logger.error("Adding {} units of item {} would overflow the cart of {}", request.getQuantity(),
+					request.getItemId(), request.getUsername());
+			return ResponseEntity.badRequest().build();
+		}
+		shopMetrics.cartChanged(cart);
+		logger.debug("Successfully added item(s) to cart");
+		return ResponseEntity.ok(CartResponse.from(cart));
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		logger.info("Received request to remove item(s) from cart");
+	public ResponseEntity<CartResponse> removeFromcart(@RequestBody ModifyCartRequest request) {
+		logger.debug("Received request to remove item(s) from cart");
 		User user = userRepository.findByUsername(request.getUsername());
 		if(user == null) {
-			logger.error("Could not find user with username " + request.getUsername());
+			logger.error("Could not find user with username {}", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
 		if(!item.isPresent()) {
-			logger.error("Could not find item with id " + request.getItemId());
+			logger.error("Could not find item with id {}", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
-		logger.info("Successfully removed item(s) from cart");
-		return ResponseEntity.ok(cart);
+		Cart cart = modifyReserving(user,
+				c -> Collections.singletonMap(item.get().getId(),
+						stockChange(c, item.get(), CartOperation.Type.REMOVE, request.getQuantity(), 0)),
+				c -> c.removeItem(item.get(), request.getQuantity()));
+		shopMetrics.cartChanged(cart);
+		logger.debug("Successfully removed item(s) from cart");
+		return ResponseEntity.ok(CartResponse.from(cart));
+	}
+
+	/**
+	 * Applies a list of add and remove operations in order. All items are
+	 * looked up in one batch and the cart is written once. If any operation is
+	 * invalid or names an unknown item, nothing is applied.
+	 */
+	@PostMapping("/bulk")
+	public ResponseEntity<CartResponse> modifyCart(@RequestBody BulkModifyCartRequest request) {
+		logger.debug("Received request to apply bulk changes to cart");
+		List<CartOperation> operations = request.getOperations();
+		if(operations == null || operations.isEmpty() || operations.size() > MAX_BULK_OPERATIONS) {
+			logger.error("Bulk cart request must contain between 1 and {} operations", MAX_BULK_OPERATIONS);
+			return ResponseEntity.badRequest().build();
+		}
+		Set<Long> itemIds = new LinkedHashSet<>();
+		for(CartOperation operation : operations) {
+			if(operation == null || operation.getType() == null || operation.getQuantity() <= 0) {
+				logger.error("Invalid bulk cart operation for user {}", request.getUsername());
+				return ResponseEntity.badRequest().build();
+			}
+			itemIds.add(operation.getItemId());
+		}
+		User user = userRepository.findByUsername(request.getUsername());
+		if(user == null) {
+			logger.error("Could not find user with username {}", request.getUsername());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		Map<Long, Optional<Item>> items = itemCatalog.findAllById(itemIds);
+		for(Map.Entry<Long, Optional<Item>> item : items.entrySet()) {
+			if(!item.getValue().isPresent()) {
+				logger.error("Could not find item with id {}", item.getKey());
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+			}
+		}
+		Cart cart;
+		try {
+			cart = modifyReserving(user, c -> {
+				Map<Long, Integer> changes = new HashMap<>();
+				for(CartOperation operation : operations) {
+					Item item = items.get(operation.getItemId()).get();
+					int pending = changes.getOrDefault(item.getId(), 0);
+					changes.put(item.getId(), pending
+							+ stockChange(c, item, operation.getType(), operation.getQuantity(), pending));
+				}
+				return changes;
+			}, c -> {
+				for(CartOperation operation : operations) {
+					Item item = items.get(operation.getItemId()).get();
+					if(operation.getType() == CartOperation.Type.ADD) {
+						c.addItem(item, operation.getQuantity());
+					} else {
+						c.removeItem(item, operation.getQuantity());
+					}
+				}
+			});
+		} catch(ArithmeticException e) {
+			logger.error("Bulk cart request would overflow the cart of {}", request.getUsername());
+			return ResponseEntity.badRequest().build();
+		}
+		shopMetrics.cartChanged(cart);
+		logger.debug("Successfully applied {} operations to cart", operations.size());
+		return ResponseEntity.ok(CartResponse.from(cart));
+	}
+
+	/**
+	 * Reserves the stock changes worked out by {@code changesFor} and then
+	 * applies {@code change} to the cart. If the cart cannot be written the
+	 * reservation is reverted, so stock is only held for changes that were
+	 * stored.
+	 */
+	private Cart modifyReserving(User user, Function<Cart, Map<Long, Integer>> changesFor, Consumer<Cart> change) {
+		Map<Long, Map<Long, Integer>> reserved = new HashMap<>();
+		try {
+			return cartStore.modify(user, c -> {
+				Map<Long, Integer> changes = changesFor.apply(c);
+				inventoryService.reserveForCart(c.getId(), changes);
+				reserved.put(c.getId(), changes);
+				change.accept(c);
+			});
+		} catch(RuntimeException e) {
+			reserved.forEach(inventoryService::revertForCart);
+			throw e;
+		}
+	}
+
+	/**
+	 * The number of units of {@code item} an operation will add to the cart,
+	 * or remove from it as a negative number, given the {@code pending} change
+	 * from earlier operations in the same request. A remove never takes out
+	 * more than the cart holds. Stock is reserved for the change before the
+	 * cart is changed, so a change that cannot be reserved leaves it as it was.
+	 *
+	 * @throws ArithmeticException if an add would overflow the line quantity,
+	 * before anything was reserved or changed
+	 */
+	private static int stockChange(Cart cart, Item item, CartOperation.Type type, int quantity, int pending) {
+		if(quantity <= 0) {
+			return 0;
+		}
+		CartLine line = cart.getLine(item);
+		int held = (line == null ? 0 : line.getQuantity()) + pending;
+		if(type == CartOperation.Type.ADD) {
+			Math.addExact(held, quantity);
+			return quantity;
+		}
+		return -Math.min(held, quantity);
 	}
-		
 }
@@ -1,44 +1,239 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.catalog.CatalogImporter;
+import com.example.demo.catalog.ItemCatalogCache;
+import com.example.demo.catalog.ItemCatalogExporter;
+import com.example.demo.catalog.ItemSearchIndex;
+import com.example.demo.datasource.ReadReplica;
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.CatalogImportJob;
+import com.example.demo.model.persistence.CatalogImportJob.Format;
 import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.ItemStock;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
+import com.example.demo.model.responses.ItemPage;
+import com.example.demo.model.responses.StockResponse;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
+	@Autowired
+	private ItemCatalogCache itemCatalog;
+
 	@Autowired
 	private ItemRepository itemRepository;
 
+	@Autowired
+	private ItemCatalogExporter catalogExporter;
+
+	@Autowired
+	private ItemSearchIndex searchIndex;
+
+	@Autowired
+	private CatalogImporter catalogImporter;
+
+	@Autowired
+	private ItemStockRepository itemStockRepository;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	public static final String CSV = "text/csv";
+
+	private static final int MAX_PAGE_SIZE = 500;
+
+	private static final int MAX_SEARCH_RESULTS = 100;
+
 	private static final Logger logger = LoggerFactory.getLogger(ItemController.class);
 
+	@ReadReplica
 	@GetMapping
 	public ResponseEntity<List<Item>> getItems() {
-		logger.info("Received request to get all items");
-		return ResponseEntity.ok(itemRepository.findAll());
+		logger.debug("Received request to get all items");
+		return ResponseEntity.ok(itemCatalog.findAll());
 	}
 	
+	@ReadReplica
+	@GetMapping("/page")
+	public ResponseEntity<ItemPage> getItemPage(@RequestParam(required = false) Long after,
+			@RequestParam(defaultValue = "50") int limit) {
+		logger.debug("Received request to get items after id {}", after);
+		int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		List<Item> items = itemRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after,
+				PageRequest.of(0, pageSize + 1));
+		if (items.size() <= pageSize) {
+			return ResponseEntity.ok(new ItemPage(items, null));
+		}
+		items = items.subList(0, pageSize);
+		return ResponseEntity.ok(new ItemPage(items, items.get(pageSize - 1).getId()));
+	}
+
+	@ReadReplica
+	@GetMapping(value = "/stream", produces = ItemCatalogExporter.NDJSON)
+	public void streamItems(HttpServletResponse response) throws IOException {
+		logger.debug("Received request to stream all items");
+		response.setContentType(ItemCatalogExporter.NDJSON);
+		long written = catalogExporter.writeNdjson(response.getOutputStream());
+		logger.debug("Streamed {} items", written);
+	}
+
+	@ReadReplica
 	@GetMapping("/{id}")
 	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		logger.info("Received request to get item with id " + id);
-		return ResponseEntity.of(itemRepository.findById(id));
+		logger.debug("Received request to get item with id {}", id);
+		return ResponseEntity.of(itemCatalog.findById(id));
 	}
 	
+	/**
+	 * Returns the item's stock, or 404 if the item is not stock-tracked and
+	 * can be ordered in any quantity.
+	 */
+	@GetMapping("/{id}/stock")
+	public ResponseEntity<StockResponse> getStock(@PathVariable Long id) {
+		logger.debug("Received request to get stock of item {}", id);
+		return ResponseEntity.of(itemStockRepository.findById(id).map(stock -> new StockResponse(id,
+				stock.getQuantity(), inventoryService.available(id).orElse(stock.getQuantity()))));
+	}
+
+	/**
+	 * Sets the item's stored stock, which starts tracking it if it was not
+	 * tracked before.
+	 */
+	@PutMapping("/{id}/stock")
+	public ResponseEntity<StockResponse> setStock(@PathVariable Long id, @RequestParam long quantity) {
+		logger.debug("Received request to set stock of item {} to {}", id, quantity);
+		if (quantity < 0) {
+			logger.error("Cannot set negative stock {} for item {}", quantity, id);
+			return ResponseEntity.badRequest().build();
+		}
+		if (!itemCatalog.findById(id).isPresent()) {
+			logger.error("Could not find item with id {}", id);
+			return ResponseEntity.notFound().build();
+		}
+		ItemStock stock = inventoryService.setStock(id, quantity);
+		return ResponseEntity.ok(new StockResponse(id, stock.getQuantity(),
+				inventoryService.available(id).orElse(stock.getQuantity())));
+	}
+
+	@ReadReplica
 	@GetMapping("/name/{name}")
 	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
-		logger.info("Received request to get item with name " + name);
-		List<Item> items = itemRepository.findByName(name);
+		logger.debug("Received request to get item with name {}", name);
+		List<Item> items = itemCatalog.findByName(name);
 		return items == null || items.isEmpty() ? ResponseEntity.notFound().build()
 				: ResponseEntity.ok(items);
 	}
+
+	@ReadReplica
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam("q") String query,
+			@RequestParam(defaultValue = "20") int limit) {
+		logger.debug("Received request to search items for {}", query);
+		if (query.trim().isEmpty()) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(searchIndex.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS))));
+	}
+
+	/**
+	 * Imports the request body, {@value #CSV} or NDJSON depending on its
+	 * content type, and returns the finished job. A failed import can be
+	 * resumed by sending the same body again with {@code resume} set to the
+	 * job id.
+	 */
+	@PostMapping(value = "/import", consumes = {CSV, ItemCatalogExporter.NDJSON})
+	public ResponseEntity<CatalogImportJob> importItems(@RequestParam(required = false) Long resume,
+			HttpServletRequest request) throws IOException {
+		logger.debug("Received request to import items");
+		Format format = request.getContentType().toLowerCase(Locale.ROOT).startsWith(CSV) ? Format.CSV : Format.NDJSON;
+		CatalogImportJob previous = null;
+		if (resume != null) {
+			Optional<CatalogImportJob> job = catalogImporter.findJob(resume);
+			if (!job.isPresent()) {
+				logger.error("Could not find catalog import {}", resume);
+				return ResponseEntity.notFound().build();
+			}
+			previous = job.get();
+		}
+		CatalogImportJob job;
+		try {
+			job = catalogImporter.importRequestBody(format, previous, request.getInputStream());
+		} catch (IllegalArgumentException e) {
+			logger.error("Cannot import items: {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		} catch (IllegalStateException e) {
+			logger.error("Cannot import items: {}", e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		HttpStatus status = job.getStatus() == CatalogImportJob.Status.COMPLETED ? HttpStatus.OK
+				: HttpStatus.UNPROCESSABLE_ENTITY;
+		return ResponseEntity.status(status).body(job);
+	}
+
+	/**
+	 * Starts importing a file from the server's import directory in the
+	 * background. The format is taken from the file extension unless given.
+	 */
+	@PostMapping("/import/file")
+	public ResponseEntity<CatalogImportJob> importItemsFromFile(@RequestParam String name,
+			@RequestParam(required = false) Format format) {
+		logger.debug("Received request to import items from file {}", name);
+		if (format == null) {
+			format = name.toLowerCase(Locale.ROOT).endsWith(".csv") ? Format.CSV : Format.NDJSON;
+		}
+		try {
+			return ResponseEntity.accepted().body(catalogImporter.importFile(name, format));
+		} catch (IllegalArgumentException e) {
+			logger.error("Cannot import items: {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	@PostMapping("/import/{id}/resume")
+	public ResponseEntity<CatalogImportJob> resumeImport(@PathVariable Long id) {
+		logger.debug("Received request to resume catalog import {}", id);
+		Optional<CatalogImportJob> job = catalogImporter.findJob(id);
+		if (!job.isPresent()) {
+			logger.error("Could not find catalog import {}", id);
+			return ResponseEntity.notFound().build();
+		}
+		try {
+			return ResponseEntity.accepted().body(catalogImporter.resumeFile(job.get()));
+		} catch (IllegalArgumentException e) {
+			logger.error("Cannot resume catalog import: {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		} catch (IllegalStateException e) {
+			logger.error("Cannot resume catalog import: {}", e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+	}
+
+	@GetMapping("/import/{id}")
+	public ResponseEntity<CatalogImportJob> getImport(@PathVariable Long id) {
+		logger.debug("Received request to get catalog import {}", id);
+		return ResponseEntity.of(catalogImporter.findJob(id));
+	}
 }
@@ -1,23 +1,37 @@
 package com.example.demo.controllers;
 
+import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.example.demo.carts.CartStore;
+import com.example.demo.datasource.ReadReplica;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.OrderStatusResponse;
+import com.example.demo.orders.OrderSubmissionService;
 
 @RestController
 @RequestMapping("/api/order")
@@ -29,31 +43,163 @@ public class OrderController {
 	@Autowired
 	private OrderRepository orderRepository;
 
+	@Autowired
+	private OrderSubmissionService orderSubmissionService;
+
+	@Autowired
+	private CartStore cartStore;
+
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+	private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
+	private static final int MAX_PAGE_SIZE = 200;
+
+	private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
 	private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 	
+	/**
+	 * Submits the user's cart as an order. The order is saved as pending and
+	 * answered with 202 Accepted; it is then processed in the background and
+	 * its progress can be followed at the returned location. A client that
+	 * retries with the same {@value #IDEMPOTENCY_KEY} header gets the order
+	 * created by the first attempt instead of a duplicate.
+	 */
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-		logger.info("Received request to submit user order.");
+	public ResponseEntity<OrderResponse> submit(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+		logger.debug("Received request to submit user order.");
+		if (idempotencyKey != null && (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+			logger.error("Invalid idempotency key for user {}", username);
+			return ResponseEntity.badRequest().build();
+		}
 		User user = userRepository.findByUsername(username);
 		if (user == null) {
-			logger.error("Could not find user with username " + username);
+			logger.error("Could not find user with username {}", username);
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
-		orderRepository.save(order);
-		logger.info("Successfully submitted order for user " + username);
-		return ResponseEntity.ok(order);
+		return cartStore.withFlushedCart(user, () -> submitCart(user, idempotencyKey));
+	}
+
+	private ResponseEntity<OrderResponse> submitCart(User user, String idempotencyKey) {
+		String username = user.getUsername();
+		UserOrder existing = findSubmitted(user, idempotencyKey);
+		if (existing != null) {
+			logger.info("Order for user {} was already submitted with this idempotency key", username);
+			return accepted(existing);
+		}
+		if (user.getCart() == null || user.getCart().isEmpty()) {
+			// The cart may have just been emptied by a concurrent retry of this submission.
+			existing = findSubmitted(user, idempotencyKey);
+			if (existing != null) {
+				return accepted(existing);
+			}
+			logger.error("Cannot submit an empty cart for user {}", username);
+			return ResponseEntity.badRequest().build();
+		}
+		UserOrder order;
+		try {
+			order = orderSubmissionService.submit(user, idempotencyKey);
+		} catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+			// A concurrent retry with the same key may have won the race.
+			existing = findSubmitted(user, idempotencyKey);
+			if (existing == null) {
+				throw e;
+			}
+			logger.info("Order for user {} was submitted concurrently with this idempotency key", username);
+			return accepted(existing);
+		}
+		logger.info("Accepted order {} for user {}", order.getId(), username);
+		return accepted(order);
+	}
+
+	@GetMapping("/status/{username}/{id}")
+	public ResponseEntity<OrderStatusResponse> getOrderStatus(@PathVariable String username, @PathVariable long id) {
+		User user = userRepository.findByUsername(username);
+		if (user == null) {
+			logger.error("Could not find user with username {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.of(orderRepository.findStatusByIdAndUser(id, user));
 	}
 	
+	@ReadReplica
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-		logger.info("Received request to retrieve user orders.");
+	public ResponseEntity<List<OrderResponse>> getOrdersForUser(@PathVariable String username) {
+		logger.debug("Received request to retrieve user orders.");
+		User user = userRepository.findByUsername(username);
+		if (user == null) {
+			logger.error("Could not find user with username {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		logger.debug("Successfully retrieved orders for user");
+		return ResponseEntity.ok(OrderResponse.fromLines(orderRepository.findLinesByUser(user)));
+	}
+
+	/**
+	 * One page of a user's order history, newest first. {@code from} is
+	 * inclusive and {@code to} exclusive; {@code after} is the
+	 * {@code nextCursor} returned with the previous page.
+	 */
+	@ReadReplica
+	@GetMapping("/history/{username}/page")
+	public ResponseEntity<OrderHistoryPage> getOrderHistoryPage(@PathVariable String username,
+			@RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to,
+			@RequestParam(required = false) String after,
+			@RequestParam(defaultValue = "50") int limit) {
+		logger.debug("Received request to retrieve a page of user orders.");
 		User user = userRepository.findByUsername(username);
 		if (user == null) {
-			logger.error("Could not find user with username " + username);
+			logger.error("Could not find user with username {}", username);
 			return ResponseEntity.notFound().build();
 		}
-		logger.info("Successfully retrieved orders for user");
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		Instant rangeStart = from == null ? Instant.EPOCH : from;
+		Instant rangeEnd = to == null ? END_OF_TIME : to;
+		Instant beforeTime = rangeEnd;
+		Long beforeId = Long.MIN_VALUE;
+		if (after != null) {
+			int separator = after.indexOf('_');
+			try {
+				beforeTime = Instant.ofEpochMilli(Long.parseLong(after.substring(0, separator)));
+				beforeId = Long.valueOf(after.substring(separator + 1));
+			} catch (RuntimeException e) {
+				logger.error("Invalid order history cursor {}", after);
+				return ResponseEntity.badRequest().build();
+			}
+		}
+		int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		List<Long> ids = orderRepository.findHistoryIds(user, rangeStart, rangeEnd, beforeTime, beforeId,
+				PageRequest.of(0, pageSize + 1));
+		boolean hasMore = ids.size() > pageSize;
+		if (hasMore) {
+			ids = ids.subList(0, pageSize);
+		}
+		List<OrderResponse> orders = ids.isEmpty() ? Collections.<OrderResponse>emptyList()
+				: OrderResponse.fromLines(orderRepository.findLinesByIdIn(ids));
+		String nextCursor = null;
+		if (hasMore && !orders.isEmpty()) {
+			OrderResponse last = orders.get(orders.size() - 1);
+			nextCursor = last.getCreatedAt().toEpochMilli() + "_" + last.getId();
+		}
+		return ResponseEntity.ok(new OrderHistoryPage(orders, nextCursor));
+	}
+
+	private UserOrder findSubmitted(User user, String idempotencyKey) {
+		return idempotencyKey == null ? null : orderRepository.findByUserAndIdempotencyKey(user, idempotencyKey);
+	}
+
+	/**
+	 * 202 with the order while it is still pending, 200 once it has been
+	 * confirmed or has failed. Usernames are not restricted to URL-safe
+	 * characters, so the status location is encoded.
+	 */
+	private static ResponseEntity<OrderResponse> accepted(UserOrder order) {
+		HttpStatus status = order.getStatus() == UserOrder.Status.PENDING ? HttpStatus.ACCEPTED : HttpStatus.OK;
+		return ResponseEntity.status(status)
+				.location(UriComponentsBuilder.fromPath("/api/order/status/{username}/{id}").encode()
+						.buildAndExpand(order.getUser().getUsername(), order.getId()).toUri())
+				.body(OrderResponse.from(order));
 	}
 }
@@ -0,0 +1,46 @@
+package com.example.demo.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import com.example.demo.inventory.InsufficientStockException;
+import com.example.demo.security.HashingCapacityExceededException;
+
+@ControllerAdvice
+public class RestExceptionHandler {
+
+	private static final Logger logger = LoggerFactory.getLogger(RestExceptionHandler.class);
+
+	@ExceptionHandler(HashingCapacityExceededException.class)
+	public ResponseEntity<Void> hashingCapacityExceeded(HashingCapacityExceededException e) {
+		logger.warn("Rejecting request: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.build();
+	}
+
+	/**
+	 * Another request changed the same cart first. The client should reload
+	 * and retry rather than have its write silently overwrite the other one.
+	 * Two requests adding the same new item race on the cart line's unique
+	 * constraint before the cart version is checked, so that is a conflict too.
+	 */
+	@ExceptionHandler({ OptimisticLockingFailureException.class, DataIntegrityViolationException.class })
+	public ResponseEntity<Void> concurrentModification(RuntimeException e) {
+		logger.warn("Rejecting concurrent modification: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.CONFLICT).build();
+	}
+
+	@ExceptionHandler(InsufficientStockException.class)
+	public ResponseEntity<Void> insufficientStock(InsufficientStockException e) {
+		logger.info("Rejecting request: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.CONFLICT).build();
+	}
+}
@@ -1,13 +1,11 @@
 package com.example.demo.controllers;
 
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,9 +15,11 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.security.PasswordHashingService;
+import com.example.demo.security.UserDetailsServiceImpl;
 
 @RestController
 @RequestMapping("/api/user")
@@ -29,50 +29,52 @@ public class UserController {
 	private UserRepository userRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private PasswordHashingService passwordHashingService;
 
 	@Autowired
-	private BCryptPasswordEncoder bCryptPasswordEncoder;
+	private UserDetailsServiceImpl userDetailsService;
 
 	private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
 	@GetMapping("/id/{id}")
-	public ResponseEntity<User> findById(@PathVariable Long id) {
-		logger.info("Received request to retrieve user with userId " + id);
-		return ResponseEntity.of(userRepository.findById(id));
+	public ResponseEntity<UserResponse> findById(@PathVariable Long id) {
+		logger.debug("Received request to retrieve user with userId {}", id);
+		return ResponseEntity.of(userRepository.findResponseById(id));
 	}
 	
 	@GetMapping("/{username}")
-	public ResponseEntity<User> findByUserName(@PathVariable String username) {
-		logger.info("Received request to retrieve user " + username);
-		User user = userRepository.findByUsername(username);
+	public ResponseEntity<UserResponse> findByUserName(@PathVariable String username) {
+		logger.debug("Received request to retrieve user {}", username);
+		UserResponse user = userRepository.findResponseByUsername(username);
 		return user == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(user);
 	}
 	
 	@PostMapping("/create")
-	public ResponseEntity<User> createUser(@RequestBody CreateUserRequest createUserRequest) {
-		logger.info("Received request to create new user.");
+	public CompletableFuture<ResponseEntity<UserResponse>> createUser(@RequestBody CreateUserRequest createUserRequest) {
+		logger.debug("Received request to create new user.");
 		User user = new User();
 		user.setUsername(createUserRequest.getUsername());
 
 		if (!passwordsMatch(createUserRequest)) {
 			logger.error("Password and password confirmation did not match.");
-			return ResponseEntity.badRequest().build();
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
 		}
 
 		if (!passwordLengthIsValid(createUserRequest)) {
 			logger.error("Provided password did not meet length criteria.");
-			return ResponseEntity.badRequest().build();
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
 		}
 
-		user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
-
-		Cart cart = new Cart();
-		cartRepository.save(cart);
-		user.setCart(cart);
-		userRepository.save(user);
-		logger.info("User " + user.getUsername() + " was successfully created.");
-		return ResponseEntity.ok(user);
+		return passwordHashingService.encodeAsync(createUserRequest.getPassword()).thenApply(hash -> {
+			user.setPassword(hash);
+			// Runs on a hashing thread with no open persistence context, so the
+			// cart is persisted through the cascade from User in one transaction.
+			user.setCart(new Cart());
+			userRepository.save(user);
+			userDetailsService.evict(user.getUsername());
+			logger.info("User {} was successfully created.", user.getUsername());
+			return ResponseEntity.ok(UserResponse.from(user));
+		});
 	}
 
 	private boolean passwordLengthIsValid(CreateUserRequest createUserRequest) {
@@ -0,0 +1,130 @@
+package com.example.demo.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Opens the pool's connections before the web server starts accepting
+ * requests, so the first requests after a deploy do not each pay for
+ * connection setup. Connections are borrowed all at once, which forces the
+ * pool to create them, validated and handed straight back.
+ * <p>
+ * By default as many connections are opened as the pool keeps idle;
+ * {@code datasource.warmup.connections} overrides that. With a read replica
+ * configured, both pools are warmed up. A warm-up failure is logged but does
+ * not prevent startup; the pool will keep retrying on its own.
+ */
+@Component
+public class DataSourceWarmup implements SmartInitializingSingleton {
+
+	private static final Logger logger = LoggerFactory.getLogger(DataSourceWarmup.class);
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final List<DataSource> dataSources;
+
+	private final boolean enabled;
+
+	private final int connections;
+
+	public DataSourceWarmup(List<DataSource> dataSources,
+			@Value("${datasource.warmup.enabled:true}") boolean enabled,
+			@Value("${datasource.warmup.connections:0}") int connections) {
+		this.dataSources = pools(dataSources);
+		this.enabled = enabled;
+		this.connections = connections;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (enabled) {
+			warmUp();
+		}
+	}
+
+	/**
+	 * Returns the number of connections that were opened and validated.
+	 */
+	public int warmUp() {
+		int valid = 0;
+		for (DataSource dataSource : dataSources) {
+			valid += warmUp(dataSource);
+		}
+		return valid;
+	}
+
+	private int warmUp(DataSource dataSource) {
+		int target = targetConnections(dataSource);
+		long start = System.currentTimeMillis();
+		List<Connection> borrowed = new ArrayList<>(target);
+		int valid = 0;
+		try {
+			for (int i = 0; i < target; i++) {
+				Connection connection = dataSource.getConnection();
+				borrowed.add(connection);
+				if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+					valid++;
+				}
+			}
+		} catch (SQLException e) {
+			logger.warn("Connection pool warm-up stopped after {} of {} connections: {}", borrowed.size(), target,
+					e.toString());
+		} finally {
+			for (Connection connection : borrowed) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					logger.debug("Could not return warm-up connection", e);
+				}
+			}
+		}
+		logger.info("Warmed up {} of {} database connections{} in {} ms", valid, target, poolName(dataSource),
+				System.currentTimeMillis() - start);
+		return valid;
+	}
+
+	private int targetConnections(DataSource dataSource) {
+		if (connections > 0) {
+			return connections;
+		}
+		if (dataSource instanceof HikariDataSource) {
+			HikariDataSource hikari = (HikariDataSource) dataSource;
+			return Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize());
+		}
+		return 1;
+	}
+
+	/**
+	 * The pools behind the given data sources. A routing data source is
+	 * skipped when the pools it routes to are beans of their own.
+	 */
+	private static List<DataSource> pools(List<DataSource> dataSources) {
+		List<DataSource> pools = new ArrayList<>();
+		for (DataSource dataSource : dataSources) {
+			if (dataSource instanceof HikariDataSource) {
+				pools.add(dataSource);
+			}
+		}
+		if (pools.isEmpty() && !dataSources.isEmpty()) {
+			return Collections.singletonList(dataSources.get(0));
+		}
+		return pools;
+	}
+
+	private static String poolName(DataSource dataSource) {
+		return dataSource instanceof HikariDataSource ? " for " + ((HikariDataSource) dataSource).getPoolName() : "";
+	}
+}
@@ -0,0 +1,24 @@
+package com.example.demo.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method whose reads may be served by the read replica when
+ * {@code datasource.replica.enabled} is set. Inside the method, connections
+ * for read-only transactions and for statements outside of any transaction
+ * go to the replica; read-write transactions still go to the primary.
+ * <p>
+ * Only put this on code that can tolerate data up to
+ * {@code datasource.replica.max-lag-ms} old, such as catalog browsing and
+ * order history. Never put it on code that reads something it has just
+ * written.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadReplica {
+}
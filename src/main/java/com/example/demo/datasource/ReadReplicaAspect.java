@@ -0,0 +1,36 @@
+package com.example.demo.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens a {@link ReplicaScope} around methods annotated with
+ * {@link ReadReplica}. Without {@code datasource.replica.enabled} no scope is
+ * opened, so these methods read and fill the shared caches like any other.
+ */
+@Aspect
+@Component
+public class ReadReplicaAspect {
+
+	private final boolean replicaEnabled;
+
+	public ReadReplicaAspect(@Value("${datasource.replica.enabled:false}") boolean replicaEnabled) {
+		this.replicaEnabled = replicaEnabled;
+	}
+
+	@Around("@annotation(com.example.demo.datasource.ReadReplica)")
+	public Object readFromReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+		if (!replicaEnabled) {
+			return joinPoint.proceed();
+		}
+		boolean outer = ReplicaScope.enter();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			ReplicaScope.exit(outer);
+		}
+	}
+}
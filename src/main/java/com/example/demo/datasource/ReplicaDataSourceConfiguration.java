@@ -0,0 +1,76 @@
+package com.example.demo.datasource;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replaces the single auto-configured pool with a primary pool, configured
+ * exactly as before through {@code spring.datasource.*}, and a replica pool
+ * configured through {@code datasource.replica.*} using Hikari's property
+ * names ({@code jdbc-url}, {@code username}, {@code maximum-pool-size}, ...).
+ * Everything that injects a {@link DataSource} gets the routing data source.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	@ConfigurationProperties("datasource.replica")
+	public HikariDataSource replicaDataSource() {
+		HikariDataSource replica = new HikariDataSource();
+		replica.setPoolName("shop-replica");
+		replica.setReadOnly(true);
+		return replica;
+	}
+
+	@Bean
+	public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+			MeterRegistry meterRegistry,
+			@Value("${datasource.replica.lag-query:}") String lagQuery,
+			@Value("${datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+		return new ReplicaLagMonitor(replica, meterRegistry, lagQuery, maxLagMillis);
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+			@Qualifier("replicaDataSource") DataSource replica, ReplicaLagMonitor lagMonitor,
+			MeterRegistry meterRegistry) {
+		return new LazyConnectionDataSourceProxy(
+				new ReplicaRoutingDataSource(primary, replica, lagMonitor, meterRegistry));
+	}
+
+	/**
+	 * By default an open-in-view entity manager keeps its first connection
+	 * until the request ends, so a request that started on the replica would
+	 * also write there. Releasing the connection after each transaction lets
+	 * every transaction be routed on its own.
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+		return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+				PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+	}
+}
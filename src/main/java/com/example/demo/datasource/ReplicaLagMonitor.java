@@ -0,0 +1,117 @@
+package com.example.demo.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decides whether the replica may serve reads. Every
+ * {@code datasource.replica.lag-check-interval-ms} it runs
+ * {@code datasource.replica.lag-query} on the replica, which must return the
+ * replication lag in seconds, e.g.
+ * {@code select extract(epoch from now() - pg_last_xact_replay_timestamp())}
+ * on PostgreSQL. Without a lag query only connectivity is checked and the lag
+ * is taken to be zero.
+ * <p>
+ * The replica is used while the last check succeeded and the lag is at most
+ * {@code datasource.replica.max-lag-ms}. A failed check, a lag the query
+ * cannot report, or a failed connection attempt sends all reads back to the
+ * primary until a later check passes.
+ */
+public class ReplicaLagMonitor {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final DataSource replica;
+
+	private final String lagQuery;
+
+	private final long maxLagMillis;
+
+	private volatile double lagSeconds = Double.NaN;
+
+	private volatile boolean usable;
+
+	public ReplicaLagMonitor(DataSource replica, MeterRegistry meterRegistry, String lagQuery, long maxLagMillis) {
+		this.replica = replica;
+		this.lagQuery = lagQuery == null || lagQuery.trim().isEmpty() ? null : lagQuery;
+		this.maxLagMillis = maxLagMillis;
+		Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+				.description("Replication lag of the read replica as of the last check")
+				.baseUnit("seconds")
+				.register(meterRegistry);
+		Gauge.builder("datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+				.description("Whether reads are currently allowed to go to the read replica")
+				.register(meterRegistry);
+		check();
+		if (!usable) {
+			logger.warn("Read replica is not usable at startup, reading from the primary");
+		}
+	}
+
+	public boolean isUsable() {
+		return usable;
+	}
+
+	@Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+	public void check() {
+		double lag;
+		try (Connection connection = replica.getConnection()) {
+			lag = lagQuery == null ? validate(connection) : queryLag(connection);
+		} catch (SQLException | RuntimeException e) {
+			markUnavailable(e);
+			return;
+		}
+		lagSeconds = lag;
+		boolean nowUsable = !Double.isNaN(lag) && lag * 1000 <= maxLagMillis;
+		if (nowUsable != usable) {
+			if (nowUsable) {
+				logger.info("Read replica is usable, lag {} s", lag);
+			} else {
+				logger.warn("Read replica lag {} s exceeds {} ms, reading from the primary", lag, maxLagMillis);
+			}
+		}
+		usable = nowUsable;
+	}
+
+	/**
+	 * Stops using the replica until the next successful check.
+	 */
+	public void markUnavailable(Exception cause) {
+		if (usable) {
+			logger.warn("Read replica is unavailable, reading from the primary: {}", cause.toString());
+		}
+		usable = false;
+		lagSeconds = Double.NaN;
+	}
+
+	private static double validate(Connection connection) throws SQLException {
+		if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+			throw new SQLException("Replica connection failed validation");
+		}
+		return 0;
+	}
+
+	private double queryLag(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery(lagQuery)) {
+			if (!result.next()) {
+				return Double.NaN;
+			}
+			double lag = result.getDouble(1);
+			return result.wasNull() ? Double.NaN : Math.max(0, lag);
+		}
+	}
+}
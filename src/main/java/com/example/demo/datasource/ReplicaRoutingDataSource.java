@@ -0,0 +1,112 @@
+package com.example.demo.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands out replica connections inside a {@link ReadReplica} method, as long
+ * as the connection is not for a read-write transaction and the
+ * {@link ReplicaLagMonitor} allows it. All other connections come from the
+ * primary. If the replica cannot supply a connection the primary is used
+ * instead and the replica is taken out of rotation.
+ * <p>
+ * The read-only flag of a transaction is only known after the transaction
+ * manager has asked for a connection, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * which defers the choice to the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+	private final DataSource primary;
+
+	private final DataSource replica;
+
+	private final ReplicaLagMonitor lagMonitor;
+
+	private final Counter primaryConnections;
+
+	private final Counter replicaConnections;
+
+	private final Counter laggingFallbacks;
+
+	private final Counter failedFallbacks;
+
+	public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+			MeterRegistry meterRegistry) {
+		this.primary = primary;
+		this.replica = replica;
+		this.lagMonitor = lagMonitor;
+		this.primaryConnections = routed(meterRegistry, "primary");
+		this.replicaConnections = routed(meterRegistry, "replica");
+		this.laggingFallbacks = fallbacks(meterRegistry, "lag");
+		this.failedFallbacks = fallbacks(meterRegistry, "error");
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!replicaAllowed()) {
+			return fromPrimary();
+		}
+		if (!lagMonitor.isUsable()) {
+			laggingFallbacks.increment();
+			return fromPrimary();
+		}
+		Connection connection;
+		try {
+			connection = replica.getConnection();
+		} catch (SQLException e) {
+			lagMonitor.markUnavailable(e);
+			failedFallbacks.increment();
+			return fromPrimary();
+		}
+		replicaConnections.increment();
+		return connection;
+	}
+
+	/**
+	 * Explicit credentials belong to the primary, so these connections are
+	 * never routed to the replica.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		Connection connection = primary.getConnection(username, password);
+		primaryConnections.increment();
+		return connection;
+	}
+
+	private static boolean replicaAllowed() {
+		if (!ReplicaScope.isActive()) {
+			return false;
+		}
+		return !TransactionSynchronizationManager.isActualTransactionActive()
+				|| TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	private Connection fromPrimary() throws SQLException {
+		Connection connection = primary.getConnection();
+		primaryConnections.increment();
+		return connection;
+	}
+
+	private static Counter routed(MeterRegistry meterRegistry, String target) {
+		return Counter.builder("datasource.routing.connections")
+				.description("Connections handed out by the routing data source")
+				.tag("target", target)
+				.register(meterRegistry);
+	}
+
+	private static Counter fallbacks(MeterRegistry meterRegistry, String reason) {
+		return Counter.builder("datasource.replica.fallbacks")
+				.description("Replica reads that were sent to the primary instead")
+				.tag("reason", reason)
+				.register(meterRegistry);
+	}
+}
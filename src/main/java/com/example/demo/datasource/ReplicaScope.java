@@ -0,0 +1,37 @@
+package com.example.demo.datasource;
+
+/**
+ * Tracks whether the current thread is running code that allows replica
+ * reads. Scopes nest; only the outermost one clears the flag again. Shared
+ * caches check {@link #isActive()} so that rows read from a lagging replica
+ * are never cached for writers.
+ */
+public final class ReplicaScope {
+
+	private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+	private ReplicaScope() {
+	}
+
+	/**
+	 * Returns whether this call opened the outermost scope; pass the result
+	 * to {@link #exit(boolean)}.
+	 */
+	public static boolean enter() {
+		if (isActive()) {
+			return false;
+		}
+		ACTIVE.set(Boolean.TRUE);
+		return true;
+	}
+
+	public static void exit(boolean outer) {
+		if (outer) {
+			ACTIVE.remove();
+		}
+	}
+
+	public static boolean isActive() {
+		return ACTIVE.get() != null;
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.demo.inventory;
+
+/**
+ * Thrown when an item does not have the units a cart change or an order
+ * needs. Nothing has been reserved or taken when it is thrown.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+	private final Long itemId;
+
+	public InsufficientStockException(Long itemId, long units) {
+		super("Not enough stock for item " + itemId + " (" + units + " requested)");
+		this.itemId = itemId;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+}
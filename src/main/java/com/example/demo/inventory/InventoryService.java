@@ -0,0 +1,437 @@
+package com.example.demo.inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.persistence.ItemStock;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderLine;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Stock reservations for carts and pending orders.
+ * <p>
+ * Adding to a cart reserves units against an in-memory
+ * {@link StripedStockCounter} per item, so a flash sale on one item is
+ * answered from memory without queueing every request on its stock row: once
+ * the counter is empty further adds are refused with
+ * {@link InsufficientStockException}. A reservation moves from the cart to
+ * the order when the cart is submitted, and the order's inventory stage then
+ * takes the units from {@code item_stock} with a conditional update, which is
+ * what guarantees that nothing is oversold across instances.
+ * <p>
+ * Reservations that are not used within {@code inventory.reservation.ttl-ms}
+ * are released. Counters start from the stored stock less this instance's
+ * reservations and are brought back in line with it every
+ * {@code inventory.refresh-interval-ms}, so units sold by other instances
+ * stop being offered here.
+ */
+@Component
+public class InventoryService {
+
+	private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+	/**
+	 * Cached for items without a stock row so they are looked up only once.
+	 */
+	private static final StripedStockCounter UNTRACKED = new StripedStockCounter(0, 1);
+
+	private final ItemStockRepository itemStockRepository;
+
+	private final int stripes;
+
+	private final long reservationTtlMillis;
+
+	private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+
+	private final Map<Long, Reservation> cartReservations = new ConcurrentHashMap<>();
+
+	private final Map<Long, Reservation> orderReservations = new ConcurrentHashMap<>();
+
+	/**
+	 * Units held by all reservations together, by item id. Changed together
+	 * with the reservation's units, under the reservation's lock.
+	 */
+	private final Map<Long, Long> reservedTotals = new ConcurrentHashMap<>();
+
+	private final Counter reserved;
+
+	private final Counter rejected;
+
+	private final Counter expired;
+
+	private final Counter shortfalls;
+
+	public InventoryService(ItemStockRepository itemStockRepository, MeterRegistry meterRegistry,
+			@Value("${inventory.stripes:0}") int stripes,
+			@Value("${inventory.reservation.ttl-ms:900000}") long reservationTtlMillis) {
+		this.itemStockRepository = itemStockRepository;
+		this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+		this.reservationTtlMillis = reservationTtlMillis;
+		this.reserved = reservations(meterRegistry, "reserved");
+		this.rejected = reservations(meterRegistry, "rejected");
+		this.expired = Counter.builder("inventory.reservations.expired")
+				.description("Reservations released because they were not used in time")
+				.register(meterRegistry);
+		this.shortfalls = Counter.builder("inventory.stock.shortfalls")
+				.description("Orders that found less stock than reserved when taking it")
+				.register(meterRegistry);
+		Gauge.builder("inventory.reservations.active", this, s -> s.cartReservations.size() + s.orderReservations.size())
+				.description("Carts and pending orders holding reserved stock")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Adjusts the cart's reservation by {@code changes}, the number of units
+	 * of each item the cart is about to gain or lose. Gains are reserved, all
+	 * or nothing; losses release what the cart had reserved. Items without
+	 * stock tracking are ignored.
+	 *
+	 * @throws InsufficientStockException if any gain cannot be reserved, in
+	 * which case the reservation is left as it was
+	 */
+	public void reserveForCart(Long cartId, Map<Long, Integer> changes) {
+		Map<Long, StripedStockCounter> tracked = new LinkedHashMap<>();
+		for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+			if (change.getValue() == 0) {
+				continue;
+			}
+			StripedStockCounter counter = counter(change.getKey());
+			if (counter != UNTRACKED) {
+				tracked.put(change.getKey(), counter);
+			}
+		}
+		if (tracked.isEmpty()) {
+			return;
+		}
+		boolean gains = false;
+		while (true) {
+			Reservation reservation = cartReservations.computeIfAbsent(cartId, id -> new Reservation());
+			synchronized (reservation) {
+				if (reservation.released) {
+					continue;
+				}
+				Map<Long, Integer> taken = new HashMap<>();
+				for (Map.Entry<Long, StripedStockCounter> entry : tracked.entrySet()) {
+					int units = changes.get(entry.getKey());
+					if (units <= 0) {
+						continue;
+					}
+					if (!entry.getValue().tryTake(units)) {
+						taken.forEach((itemId, giveBack) -> tracked.get(itemId).add(giveBack));
+						rejected.increment();
+						if (reservation.units.isEmpty()) {
+							reservation.released = true;
+							cartReservations.remove(cartId, reservation);
+						}
+						throw new InsufficientStockException(entry.getKey(), units);
+					}
+					taken.put(entry.getKey(), units);
+					gains = true;
+				}
+				for (Map.Entry<Long, StripedStockCounter> entry : tracked.entrySet()) {
+					int units = changes.get(entry.getKey());
+					long held = reservation.units.getOrDefault(entry.getKey(), 0L);
+					long after = units > 0 ? held + units : held - Math.min(held, -units);
+					if (after < held) {
+						entry.getValue().add(held - after);
+					}
+					addReserved(entry.getKey(), after - held);
+					if (after > 0) {
+						reservation.units.put(entry.getKey(), after);
+					} else {
+						reservation.units.remove(entry.getKey());
+					}
+				}
+				reservation.expiresAt = System.currentTimeMillis() + reservationTtlMillis;
+				if (reservation.units.isEmpty()) {
+					reservation.released = true;
+					cartReservations.remove(cartId, reservation);
+				}
+			}
+			if (gains) {
+				reserved.increment();
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Undoes {@link #reserveForCart} for changes that did not reach the cart
+	 * after all. Gains are released; losses are reserved again where the
+	 * stock is still there, otherwise the cart keeps those units unreserved
+	 * and the order's inventory stage still guards them.
+	 */
+	public void revertForCart(Long cartId, Map<Long, Integer> changes) {
+		Map<Long, Integer> gains = new HashMap<>();
+		changes.forEach((itemId, units) -> {
+			if (units > 0) {
+				gains.put(itemId, -units);
+			}
+		});
+		reserveForCart(cartId, gains);
+		changes.forEach((itemId, units) -> {
+			if (units < 0) {
+				try {
+					reserveForCart(cartId, Collections.singletonMap(itemId, -units));
+				} catch (InsufficientStockException e) {
+					logger.warn("Could not reserve {} units of item {} again for cart {}", -units, itemId, cartId);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Releases everything the cart has reserved, for when its changes were
+	 * dropped rather than stored.
+	 */
+	public void releaseCart(Long cartId) {
+		Reservation reservation = cartReservations.remove(cartId);
+		if (reservation != null) {
+			release(reservation);
+		}
+	}
+
+	/**
+	 * Moves the cart's reservation to {@code order} once the surrounding
+	 * transaction commits. Call before the order is saved.
+	 */
+	public void holdForOrder(Long cartId, UserOrder order) {
+		afterCommit(() -> {
+			Reservation cartReservation = cartReservations.remove(cartId);
+			if (cartReservation == null) {
+				return;
+			}
+			Reservation orderReservation = new Reservation();
+			synchronized (cartReservation) {
+				if (cartReservation.released) {
+					return;
+				}
+				cartReservation.released = true;
+				orderReservation.units.putAll(cartReservation.units);
+			}
+			orderReservation.expiresAt = System.currentTimeMillis() + reservationTtlMillis;
+			orderReservations.put(order.getId(), orderReservation);
+		});
+	}
+
+	/**
+	 * Takes the order's units from the stored stock. Must run in a
+	 * transaction: if any item is short nothing is taken. Every item with a
+	 * stock row is checked against it, whatever this instance's counter says,
+	 * since the counter is only a local early refusal. Once the
+	 * transaction has finished the order's reservation is dropped if the
+	 * stock was taken, or released if it was not.
+	 *
+	 * @throws InsufficientStockException if an item has fewer units left
+	 * than the order needs
+	 */
+	public void takeStock(UserOrder order) {
+		Map<Long, Long> units = new LinkedHashMap<>();
+		for (UserOrderLine line : order.getLines()) {
+			units.merge(line.getItemId(), (long) line.getQuantity(), Long::sum);
+		}
+		Long orderId = order.getId();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				Reservation reservation = orderReservations.remove(orderId);
+				if (reservation == null) {
+					return;
+				}
+				if (status == STATUS_COMMITTED) {
+					discard(reservation);
+				} else {
+					release(reservation);
+				}
+			}
+		});
+		Set<Long> tracked = new HashSet<>(itemStockRepository.findTrackedItemIds(units.keySet()));
+		for (Map.Entry<Long, Long> entry : units.entrySet()) {
+			if (!tracked.contains(entry.getKey())) {
+				continue;
+			}
+			// Tracking may have started on another instance since this one
+			// cached the item as untracked; pick the stock up on next use.
+			counters.remove(entry.getKey(), UNTRACKED);
+			if (itemStockRepository.take(entry.getKey(), entry.getValue()) == 0) {
+				shortfalls.increment();
+				// Other instances sold the units this counter still offers;
+				// reload it from the stored stock on next use.
+				counters.remove(entry.getKey());
+				throw new InsufficientStockException(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Units this instance can still reserve, or empty if the item is not
+	 * stock-tracked.
+	 */
+	public OptionalLong available(Long itemId) {
+		StripedStockCounter counter = counter(itemId);
+		return counter == UNTRACKED ? OptionalLong.empty() : OptionalLong.of(counter.available());
+	}
+
+	/**
+	 * Sets the stored stock of an item, which starts tracking it if it was
+	 * not tracked before.
+	 */
+	@Transactional
+	public ItemStock setStock(Long itemId, long quantity) {
+		ItemStock stock = itemStockRepository.findById(itemId).orElseGet(() -> new ItemStock(itemId, quantity));
+		stock.setQuantity(quantity);
+		itemStockRepository.save(stock);
+		afterCommit(() -> counters.remove(itemId));
+		return stock;
+	}
+
+	@Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+	public int expireReservations() {
+		long now = System.currentTimeMillis();
+		int count = expire(cartReservations, now) + expire(orderReservations, now);
+		if (count > 0) {
+			expired.increment(count);
+			logger.info("Released {} expired stock reservations", count);
+		}
+		return count;
+	}
+
+	/**
+	 * Brings every counter back to the stored stock less this instance's
+	 * reservations, and picks up items that started or stopped being tracked.
+	 */
+	@Scheduled(fixedDelayString = "${inventory.refresh-interval-ms:30000}")
+	public void refreshCounters() {
+		List<Long> itemIds = new ArrayList<>(counters.keySet());
+		if (itemIds.isEmpty()) {
+			return;
+		}
+		Map<Long, ItemStock> stored = new HashMap<>();
+		for (ItemStock stock : itemStockRepository.findAllById(itemIds)) {
+			stored.put(stock.getItemId(), stock);
+		}
+		for (Long itemId : itemIds) {
+			StripedStockCounter counter = counters.get(itemId);
+			ItemStock stock = stored.get(itemId);
+			if (counter == null || (counter == UNTRACKED) != (stock == null)) {
+				counters.remove(itemId);
+				continue;
+			}
+			if (stock == null) {
+				continue;
+			}
+			long drift = stock.getQuantity() - reservedUnits(itemId) - counter.available();
+			if (drift > 0) {
+				counter.add(drift);
+			} else if (drift < 0) {
+				counter.drain(-drift);
+			}
+		}
+	}
+
+	private StripedStockCounter counter(Long itemId) {
+		return counters.computeIfAbsent(itemId, id -> itemStockRepository.findById(id)
+				.map(stock -> new StripedStockCounter(stock.getQuantity() - reservedUnits(id), stripes))
+				.orElse(UNTRACKED));
+	}
+
+	private long reservedUnits(Long itemId) {
+		return reservedTotals.getOrDefault(itemId, 0L);
+	}
+
+	private void addReserved(Long itemId, long units) {
+		if (units != 0) {
+			reservedTotals.merge(itemId, units, (held, change) -> held + change == 0 ? null : held + change);
+		}
+	}
+
+	private int expire(Map<Long, Reservation> reservations, long now) {
+		int count = 0;
+		for (Map.Entry<Long, Reservation> entry : reservations.entrySet()) {
+			Reservation reservation = entry.getValue();
+			if (reservation.expiresAt < now && reservations.remove(entry.getKey(), reservation)) {
+				release(reservation);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void release(Reservation reservation) {
+		discard(reservation).forEach((itemId, held) -> {
+			StripedStockCounter counter = counters.get(itemId);
+			if (counter != null && counter != UNTRACKED) {
+				counter.add(held);
+			}
+		});
+	}
+
+	/**
+	 * Marks the reservation released without giving its units back to the
+	 * counters, and returns what it held.
+	 */
+	private Map<Long, Long> discard(Reservation reservation) {
+		synchronized (reservation) {
+			if (reservation.released) {
+				return Collections.emptyMap();
+			}
+			reservation.released = true;
+			reservation.units.forEach((itemId, held) -> addReserved(itemId, -held));
+			return new HashMap<>(reservation.units);
+		}
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private static Counter reservations(MeterRegistry meterRegistry, String outcome) {
+		return Counter.builder("inventory.reservations")
+				.description("Cart changes that reserved stock or were refused for lack of it")
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Units held for one cart or order, by item id. Guarded by its own lock;
+	 * once released it is no longer in either map and must not be changed.
+	 */
+	private static final class Reservation {
+		private final Map<Long, Long> units = new HashMap<>();
+
+		private long expiresAt;
+
+		private boolean released;
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.demo.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The units of one item that this instance may still reserve, split over
+ * several stripes so that concurrent reservations of the same item mostly
+ * compare-and-set different memory instead of all retrying on one counter.
+ * <p>
+ * A take is served from the calling thread's home stripe when that stripe
+ * has enough, and otherwise collects units from the other stripes. It gets
+ * either every unit it asked for or none. When the last few units are spread
+ * over stripes that several takes are collecting from at once, a take can be
+ * refused although the units would have sufficed; the stock update at order
+ * time, not this counter, is what prevents overselling.
+ */
+final class StripedStockCounter {
+
+	/**
+	 * Stripes are this many longs apart so that each sits on its own cache line.
+	 */
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray cells;
+
+	private final int stripes;
+
+	StripedStockCounter(long units, int stripes) {
+		this.stripes = Math.max(1, stripes);
+		this.cells = new AtomicLongArray(this.stripes * PADDING);
+		long share = Math.max(0, units) / this.stripes;
+		long remainder = Math.max(0, units) % this.stripes;
+		for (int stripe = 0; stripe < this.stripes; stripe++) {
+			cells.set(stripe * PADDING, stripe < remainder ? share + 1 : share);
+		}
+	}
+
+	boolean tryTake(long units) {
+		if (units <= 0) {
+			return true;
+		}
+		int home = home();
+		if (takeExactly(home, units)) {
+			return true;
+		}
+		long[] taken = new long[stripes];
+		long needed = units;
+		for (int n = 1; n <= stripes && needed > 0; n++) {
+			int stripe = (home + n) % stripes;
+			long got = takeUpTo(stripe, needed);
+			taken[stripe] += got;
+			needed -= got;
+		}
+		if (needed == 0) {
+			return true;
+		}
+		for (int stripe = 0; stripe < stripes; stripe++) {
+			if (taken[stripe] > 0) {
+				cells.addAndGet(stripe * PADDING, taken[stripe]);
+			}
+		}
+		return false;
+	}
+
+	void add(long units) {
+		if (units > 0) {
+			cells.addAndGet(home() * PADDING, units);
+		}
+	}
+
+	/**
+	 * Takes up to {@code units}, as many as are left, and returns how many
+	 * were taken.
+	 */
+	long drain(long units) {
+		long drained = 0;
+		for (int stripe = 0; stripe < stripes && drained < units; stripe++) {
+			drained += takeUpTo(stripe, units - drained);
+		}
+		return drained;
+	}
+
+	long available() {
+		long sum = 0;
+		for (int stripe = 0; stripe < stripes; stripe++) {
+			sum += cells.get(stripe * PADDING);
+		}
+		return sum;
+	}
+
+	private int home() {
+		return (int) (Thread.currentThread().getId() % stripes);
+	}
+
+	private boolean takeExactly(int stripe, long units) {
+		int index = stripe * PADDING;
+		while (true) {
+			long current = cells.get(index);
+			if (current < units) {
+				return false;
+			}
+			if (cells.compareAndSet(index, current, current - units)) {
+				return true;
+			}
+		}
+	}
+
+	private long takeUpTo(int stripe, long units) {
+		int index = stripe * PADDING;
+		while (true) {
+			long current = cells.get(index);
+			if (current <= 0) {
+				return 0;
+			}
+			long got = Math.min(current, units);
+			if (cells.compareAndSet(index, current, current - got)) {
+				return got;
+			}
+		}
+	}
+}
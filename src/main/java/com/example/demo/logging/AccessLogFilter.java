@@ -0,0 +1,107 @@
+package com.example.demo.logging;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Writes one key=value line per request to the {@code access} logger for a
+ * random sample of requests, plus every server error and every request slower
+ * than the configured threshold. Requests that are not sampled cost a clock
+ * read and a random number, nothing is formatted or allocated for them.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+	private final Logger accessLog;
+
+	private final double sampleRate;
+
+	private final long slowThresholdNanos;
+
+	@Autowired
+	public AccessLogFilter(@Value("${logging.access.sample-rate:0.01}") double sampleRate,
+			@Value("${logging.access.slow-threshold-ms:1000}") long slowThresholdMillis) {
+		this(LoggerFactory.getLogger("access"), sampleRate, slowThresholdMillis);
+	}
+
+	AccessLogFilter(Logger accessLog, double sampleRate, long slowThresholdMillis) {
+		this.accessLog = accessLog;
+		this.sampleRate = sampleRate;
+		this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new CompletionListener(request, response, start));
+			} else {
+				log(request, response.getStatus(), start);
+			}
+		}
+	}
+
+	private void log(HttpServletRequest request, int status, long start) {
+		long elapsed = System.nanoTime() - start;
+		if (!accessLog.isInfoEnabled()) {
+			return;
+		}
+		if (status < 500 && elapsed < slowThresholdNanos && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return;
+		}
+		accessLog.info("method={} uri={} status={} duration_ms={} remote={}",
+				request.getMethod(), request.getRequestURI(), status,
+				TimeUnit.NANOSECONDS.toMillis(elapsed), request.getRemoteAddr());
+	}
+
+	private final class CompletionListener implements AsyncListener {
+		private final HttpServletRequest request;
+		private final HttpServletResponse response;
+		private final long start;
+
+		private CompletionListener(HttpServletRequest request, HttpServletResponse response, long start) {
+			this.request = request;
+			this.response = response;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			log(request, response.getStatus(), start);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+}
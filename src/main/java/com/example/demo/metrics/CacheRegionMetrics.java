@@ -0,0 +1,53 @@
+package com.example.demo.metrics;
+
+import java.util.function.ToLongFunction;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hit, miss and put counts for each second-level cache region. Micrometer's
+ * own Hibernate binder only reports totals across all regions, which hides a
+ * region that is too small or never hit. Requires
+ * {@code hibernate.generate_statistics}.
+ */
+@Component
+public class CacheRegionMetrics {
+
+	public CacheRegionMetrics(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+		SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		Statistics statistics = sessionFactory.getStatistics();
+		// Unlike Statistics.getSecondLevelCacheRegionNames() this includes the
+		// natural id and query result regions.
+		for (String region : sessionFactory.getCache().getCacheRegionNames()) {
+			register(meterRegistry, statistics, region, "hit", CacheRegionStatistics::getHitCount);
+			register(meterRegistry, statistics, region, "miss", CacheRegionStatistics::getMissCount);
+			FunctionCounter.builder("hibernate.cache.region.puts", statistics,
+					s -> count(s, region, CacheRegionStatistics::getPutCount))
+					.description("Entries put into a second-level cache region")
+					.tag("region", region)
+					.register(meterRegistry);
+		}
+	}
+
+	private static void register(MeterRegistry meterRegistry, Statistics statistics, String region, String result,
+			ToLongFunction<CacheRegionStatistics> count) {
+		FunctionCounter.builder("hibernate.cache.region.requests", statistics, s -> count(s, region, count))
+				.description("Lookups in a second-level cache region")
+				.tag("region", region)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	private static double count(Statistics statistics, String region, ToLongFunction<CacheRegionStatistics> count) {
+		CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+		return regionStatistics == null ? 0 : count.applyAsLong(regionStatistics);
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.demo.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call made through a Spring Data repository as
+ * {@code repository.invocations}, tagged with the repository interface, the
+ * method and the exception thrown, if any. Inherited methods such as
+ * {@code save} are attributed to the repository they were called on.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+	public static final String METRIC_NAME = "repository.invocations";
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+	public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+	public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String exception = "none";
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			sample.stop(Timer.builder(METRIC_NAME)
+					.description("Time spent in Spring Data repository calls")
+					.tag("repository", repositoryName(joinPoint.getTarget().getClass()))
+					.tag("method", joinPoint.getSignature().getName())
+					.tag("exception", exception)
+					.register(meterRegistry));
+		}
+	}
+
+	private String repositoryName(Class<?> targetClass) {
+		return repositoryNames.computeIfAbsent(targetClass, type -> {
+			for (Class<?> candidate : type.getInterfaces()) {
+				if (Repository.class.isAssignableFrom(candidate)
+						&& !candidate.getName().startsWith("org.springframework.")) {
+					return candidate.getSimpleName();
+				}
+			}
+			return type.getSimpleName();
+		});
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.demo.metrics;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.UserOrder;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Business-level distributions: how full carts get and how large confirmed
+ * orders are. Recorded as percentile histograms so they can be aggregated
+ * across instances.
+ */
+@Component
+public class ShopMetrics {
+
+	private final DistributionSummary cartSize;
+
+	private final DistributionSummary orderSize;
+
+	private final DistributionSummary orderTotal;
+
+	public ShopMetrics(MeterRegistry meterRegistry) {
+		this.cartSize = DistributionSummary.builder("shop.cart.size")
+				.description("Units in a cart after it was changed")
+				.baseUnit("items")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(1L)
+				.maximumExpectedValue(1000L)
+				.register(meterRegistry);
+		this.orderSize = DistributionSummary.builder("shop.order.size")
+				.description("Units in a confirmed order")
+				.baseUnit("items")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(1L)
+				.maximumExpectedValue(1000L)
+				.register(meterRegistry);
+		this.orderTotal = DistributionSummary.builder("shop.order.total")
+				.description("Total price of a confirmed order")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(1L)
+				.maximumExpectedValue(100000L)
+				.register(meterRegistry);
+	}
+
+	public void cartChanged(Cart cart) {
+		int units = 0;
+		for (CartLine line : cart.getLines()) {
+			units += line.getQuantity();
+		}
+		cartSize.record(units);
+	}
+
+	public void orderConfirmed(UserOrder order) {
+		orderSize.record(order.getUnits());
+		if (order.getTotal() != null) {
+			orderTotal.record(order.getTotal().doubleValue());
+		}
+	}
+}
@@ -1,21 +1,24 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
+import javax.persistence.MapKey;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,30 +26,40 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
-	@JsonProperty
-	@Column
-    private List<Item> items;
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+	@MapKey(name = "itemId")
+	@JsonIgnore
+	private Map<Long, CartLine> lines = new LinkedHashMap<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
 	
-	@Column
-	@JsonProperty
-	private BigDecimal total;
+	@Column(name = "total_cents", nullable = false)
+	@JsonIgnore
+	private long totalCents;
+
+	@Version
+	@JsonIgnore
+	private Long version;
 	
+	@JsonProperty("total")
 	public BigDecimal getTotal() {
-		return total;
+		return Money.fromCents(totalCents);
 	}
 
 	public void setTotal(BigDecimal total) {
-		this.total = total;
+		this.totalCents = Money.toCents(total);
+	}
+
+	public long getTotalCents() {
+		return totalCents;
 	}
 
 	public User getUser() {
@@ -57,6 +70,10 @@ public class Cart {
 		this.user = user;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
 	public Long getId() {
 		return id;
 	}
@@ -65,33 +82,108 @@ public class Cart {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	@JsonProperty("lines")
+	public Collection<CartLine> getLines() {
+		return lines.values();
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public CartLine getLine(Item item) {
+		return lines.get(item.getId());
 	}
-	
+
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	/**
+	 * Adds units of the item to its line.
+	 *
+	 * @throws ArithmeticException if the line quantity or the total would
+	 * overflow, in which case the cart is left as it was
+	 */
+	public void addItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		CartLine line = lines.get(item.getId());
+		CartLine target = line != null ? line : new CartLine(this, item);
+		int lineQuantity = Math.addExact(target.getQuantity(), quantity);
+		long total = Math.addExact(totalCents, Money.times(target.getUnitPriceCents(), quantity));
+		if(line == null) {
+			lines.put(item.getId(), target);
 		}
-		total = total.add(item.getPrice());
+		target.setQuantity(lineQuantity);
+		totalCents = total;
 	}
-	
+
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	/**
+	 * Removes up to {@code quantity} units of the item and returns how many were
+	 * actually removed. The total is only reduced by the units that were in the cart.
+	 */
+	public int removeItem(Item item, int quantity) {
+		CartLine line = lines.get(item.getId());
+		if(line == null || quantity <= 0) {
+			return 0;
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		int removed = Math.min(quantity, line.getQuantity());
+		if(removed == line.getQuantity()) {
+			lines.remove(item.getId());
+		} else {
+			line.setQuantity(line.getQuantity() - removed);
 		}
-		total = total.subtract(item.getPrice());
+		totalCents = Math.subtractExact(totalCents, Money.times(line.getUnitPriceCents(), removed));
+		return removed;
+	}
+
+	/**
+	 * Empties the cart once its contents have been turned into an order.
+	 */
+	public void clear() {
+		lines.clear();
+		totalCents = 0L;
+	}
+
+	/**
+	 * Makes this cart hold exactly the lines and total of {@code source}.
+	 * Lines that already exist are updated in place so that only the rows
+	 * that actually differ are written when the cart is flushed.
+	 */
+	public void copyContentsFrom(Cart source) {
+		lines.keySet().removeIf(itemId -> !source.lines.containsKey(itemId));
+		for(CartLine sourceLine : source.lines.values()) {
+			CartLine line = lines.get(sourceLine.getItemId());
+			if(line == null) {
+				line = new CartLine(this, sourceLine.getItem());
+				lines.put(sourceLine.getItemId(), line);
+			}
+			if(line.getQuantity() != sourceLine.getQuantity()) {
+				line.setQuantity(sourceLine.getQuantity());
+			}
+			if(line.getUnitPriceCents() != sourceLine.getUnitPriceCents()) {
+				line.setUnitPriceCents(sourceLine.getUnitPriceCents());
+			}
+		}
+		totalCents = source.totalCents;
+	}
+
+	/**
+	 * Sums the lines from scratch. Should always equal {@link #getTotalCents()};
+	 * used to detect totals that were corrupted outside of this class.
+	 */
+	public long computeTotalCents() {
+		long sum = 0L;
+		for(CartLine line : lines.values()) {
+			sum = Math.addExact(sum, line.getSubtotalCents());
+		}
+		return sum;
+	}
+
+	@JsonIgnore
+	public boolean isEmpty() {
+		return lines.isEmpty();
 	}
 }
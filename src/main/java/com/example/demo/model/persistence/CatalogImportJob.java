@@ -0,0 +1,184 @@
+package com.example.demo.model.persistence;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Progress of one catalog import. {@code recordsCommitted} is updated in the
+ * same transaction as each batch of items, so after a failure the import can
+ * be resumed by skipping exactly that many records of the same source.
+ */
+@Entity
+@Table(name = "catalog_import")
+public class CatalogImportJob {
+
+	public enum Format {
+		CSV, NDJSON
+	}
+
+	public enum Status {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	public static final String REQUEST_BODY = "request";
+
+	private static final int MAX_ERROR_LENGTH = 1000;
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "catalog_import_seq")
+	@SequenceGenerator(name = "catalog_import_seq", sequenceName = "catalog_import_seq", allocationSize = 1)
+	@JsonProperty
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	@JsonProperty
+	private Format format;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private String source;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	@JsonProperty
+	private Status status;
+
+	@Column(name = "records_committed", nullable = false)
+	@JsonProperty
+	private long recordsCommitted;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private long inserted;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private long updated;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private long rejected;
+
+	@Column(name = "started_at", nullable = false)
+	@JsonProperty
+	private Instant startedAt;
+
+	@Column(name = "updated_at", nullable = false)
+	@JsonProperty
+	private Instant updatedAt;
+
+	@Column(length = MAX_ERROR_LENGTH)
+	@JsonProperty
+	private String error;
+
+	@Version
+	@JsonIgnore
+	private Long version;
+
+	protected CatalogImportJob() {
+	}
+
+	public CatalogImportJob(Format format, String source) {
+		this.format = format;
+		this.source = source;
+		this.status = Status.RUNNING;
+		this.startedAt = now();
+		this.updatedAt = startedAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public long getRecordsCommitted() {
+		return recordsCommitted;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public Instant getStartedAt() {
+		return startedAt;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	@JsonIgnore
+	public boolean isFromRequestBody() {
+		return REQUEST_BODY.equals(source);
+	}
+
+	/**
+	 * Records a committed batch of {@code records} source records.
+	 */
+	public void batchCommitted(int records, int inserted, int updated, int rejected) {
+		this.recordsCommitted += records;
+		this.inserted += inserted;
+		this.updated += updated;
+		this.rejected += rejected;
+		this.updatedAt = now();
+	}
+
+	public void resumed() {
+		this.status = Status.RUNNING;
+		this.error = null;
+		this.updatedAt = now();
+	}
+
+	public void completed() {
+		this.status = Status.COMPLETED;
+		this.updatedAt = now();
+	}
+
+	public void failed(String error) {
+		this.status = Status.FAILED;
+		this.error = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+		this.updatedAt = now();
+	}
+
+	private static Instant now() {
+		return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+	}
+}
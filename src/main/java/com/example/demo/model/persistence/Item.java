@@ -2,36 +2,59 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.example.demo.catalog.ItemChangeListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item")
+@EntityListeners(ItemChangeListener.class)
 @Table(name = "item")
 public class Item {
 
+	public static final int MAX_NAME_LENGTH = 255;
+
+	public static final int MAX_DESCRIPTION_LENGTH = 255;
+
+	public static final int PRICE_PRECISION = 19;
+
+	public static final int PRICE_SCALE = 2;
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
 	@JsonProperty
 	private Long id;
 	
-	@Column(nullable = false)
+	@Column(unique = true, length = 64)
+	@JsonProperty
+	private String sku;
+
+	@Column(nullable = false, length = MAX_NAME_LENGTH)
 	@JsonProperty
 	private String name;
 	
-	@Column(nullable = false)
+	@Column(nullable = false, precision = PRICE_PRECISION, scale = PRICE_SCALE)
 	@JsonProperty
 	private BigDecimal price;
 	
-	@Column(nullable = false)
+	@Column(nullable = false, length = MAX_DESCRIPTION_LENGTH)
 	@JsonProperty
 	private String description;
 	
@@ -68,6 +91,14 @@ public class Item {
 		this.id = id;
 	}
 
+	public String getSku() {
+		return sku;
+	}
+
+	public void setSku(String sku) {
+		this.sku = sku;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -0,0 +1,49 @@
+package com.example.demo.model.persistence;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Units of an item that can still be sold. Items without a row are not
+ * stock-tracked and can always be ordered.
+ * <p>
+ * Kept out of {@link Item} so that taking stock, which happens on every
+ * order, neither writes the catalog row nor invalidates the item cache.
+ */
+@Entity
+@Table(name = "item_stock")
+public class ItemStock {
+
+	@Id
+	@Column(name = "item_id")
+	@JsonProperty
+	private Long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private long quantity;
+
+	protected ItemStock() {
+	}
+
+	public ItemStock(Long itemId, long quantity) {
+		this.itemId = itemId;
+		this.quantity = quantity;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(long quantity) {
+		this.quantity = quantity;
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between prices as exposed by the API and the whole cents that
+ * cart totals are kept in. Summing longs is exact and cheap, so a total can
+ * be adjusted in place on every change without ever drifting.
+ */
+public final class Money {
+
+	private static final int SCALE = 2;
+
+	private Money() {
+	}
+
+	/**
+	 * Converts a price to cents, rounding half up if it has more than two
+	 * decimal places.
+	 */
+	public static long toCents(BigDecimal amount) {
+		if (amount == null) {
+			return 0L;
+		}
+		return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+	}
+
+	public static BigDecimal fromCents(long cents) {
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+
+	public static long times(long cents, int quantity) {
+		return Math.multiplyExact(cents, (long) quantity);
+	}
+}
@@ -1,37 +1,61 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "user_order")
+@Table(name = "user_order",
+		indexes = {
+				@Index(name = "idx_user_order_user_created", columnList = "user_id, created_at"),
+				@Index(name = "idx_user_order_status_updated", columnList = "status, updated_at") },
+		uniqueConstraints = @UniqueConstraint(name = "uk_user_order_idempotency_key",
+				columnNames = { "user_id", "idempotency_key" }))
 public class UserOrder {
 
+	/**
+	 * Orders are accepted as {@code PENDING} and move through the stages of
+	 * the order pipeline until they are confirmed or fail.
+	 */
+	public enum Status {
+		PENDING, CONFIRMED, FAILED
+	}
+
+	private static final int MAX_FAILURE_REASON_LENGTH = 255;
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<UserOrderLine> lines = new ArrayList<>();
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
@@ -42,6 +66,35 @@ public class UserOrder {
 	@Column
 	private BigDecimal total;
 
+	@JsonProperty
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+	@JsonIgnore
+	@Column(name = "idempotency_key", length = 64)
+	private String idempotencyKey;
+
+	@JsonProperty
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Status status = Status.PENDING;
+
+	@JsonProperty
+	@Column(length = 32)
+	private String stage;
+
+	@JsonProperty
+	@Column(name = "failure_reason", length = MAX_FAILURE_REASON_LENGTH)
+	private String failureReason;
+
+	@JsonIgnore
+	@Column(name = "updated_at", nullable = false)
+	private Instant updatedAt;
+
+	@JsonIgnore
+	@Version
+	private long version;
+
 	public Long getId() {
 		return id;
 	}
@@ -50,12 +103,24 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<UserOrderLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void addLine(Item item, int quantity, long unitPriceCents) {
+		lines.add(new UserOrderLine(this, item, quantity, unitPriceCents));
+	}
+
+	/**
+	 * The number of units ordered across all lines.
+	 */
+	@JsonIgnore
+	public int getUnits() {
+		int units = 0;
+		for (UserOrderLine line : lines) {
+			units += line.getQuantity();
+		}
+		return units;
 	}
 
 	public User getUser() {
@@ -74,11 +139,91 @@ public class UserOrder {
 		this.total = total;
 	}
 
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * The pipeline stage the order is waiting for, or {@code null} once it is
+	 * confirmed or has failed.
+	 */
+	public String getStage() {
+		return stage;
+	}
+
+	public String getFailureReason() {
+		return failureReason;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void advanceTo(String stage) {
+		this.stage = stage;
+		this.updatedAt = now();
+	}
+
+	public void confirmed() {
+		this.status = Status.CONFIRMED;
+		this.stage = null;
+		this.updatedAt = now();
+	}
+
+	public void failed(String reason) {
+		this.status = Status.FAILED;
+		this.stage = null;
+		this.failureReason = reason != null && reason.length() > MAX_FAILURE_REASON_LENGTH
+				? reason.substring(0, MAX_FAILURE_REASON_LENGTH) : reason;
+		this.updatedAt = now();
+	}
+
+	@PrePersist
+	void stampCreatedAt() {
+		if (createdAt == null) {
+			createdAt = now();
+		}
+		if (updatedAt == null) {
+			updatedAt = createdAt;
+		}
+	}
+
+	/**
+	 * Timestamps are kept to the millisecond so that the value handed out in
+	 * a history cursor compares equal to the stored column.
+	 */
+	private static Instant now() {
+		return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+	}
+
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
+		for (CartLine line : cart.getLines()) {
+			order.addLine(line.getItem(), line.getQuantity(), line.getUnitPriceCents());
+		}
 		order.setTotal(cart.getTotal());
 		order.setUser(cart.getUser());
+		order.setCreatedAt(now());
 		return order;
 	}
 	
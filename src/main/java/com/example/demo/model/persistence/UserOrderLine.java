@@ -0,0 +1,96 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One distinct item of an order with the number of units ordered and the unit
+ * price the cart held when the order was placed. Like {@link CartLine}, an
+ * order writes one row per distinct item however many units it contains.
+ */
+@Entity
+@Table(name = "user_order_line",
+		uniqueConstraints = @UniqueConstraint(name = "uk_user_order_line_item", columnNames = {"order_id", "item_id"}))
+public class UserOrderLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_line_seq")
+	@SequenceGenerator(name = "user_order_line_seq", sequenceName = "user_order_line_seq", allocationSize = 50)
+	@JsonIgnore
+	private Long id;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "order_id", nullable = false)
+	@JsonIgnore
+	private UserOrder order;
+
+	@Column(name = "item_id", nullable = false)
+	@JsonIgnore
+	private Long itemId;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "item_id", insertable = false, updatable = false)
+	@JsonProperty
+	private Item item;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(name = "unit_price_cents", nullable = false)
+	@JsonIgnore
+	private long unitPriceCents;
+
+	protected UserOrderLine() {
+	}
+
+	public UserOrderLine(UserOrder order, Item item, int quantity, long unitPriceCents) {
+		this.order = order;
+		this.item = item;
+		this.itemId = item.getId();
+		this.quantity = quantity;
+		this.unitPriceCents = unitPriceCents;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public UserOrder getOrder() {
+		return order;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	@JsonProperty("unitPrice")
+	public BigDecimal getUnitPrice() {
+		return Money.fromCents(unitPriceCents);
+	}
+
+	public long getUnitPriceCents() {
+		return unitPriceCents;
+	}
+}
@@ -1,10 +1,47 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	/**
+	 * Stored and recomputed totals for the carts after {@code afterId}, in id
+	 * order. The sum over the lines is done by the database so no cart or line
+	 * has to be loaded.
+	 */
+	@Query("select c.id as id, c.totalCents as storedCents,"
+			+ " coalesce(sum(l.unitPriceCents * l.quantity), 0) as computedCents"
+			+ " from Cart c left join c.lines l where c.id > :afterId"
+			+ " group by c.id, c.totalCents order by c.id")
+	List<CartTotal> findTotalsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+	/**
+	 * Overwrites a drifted total, provided it still holds the value that was
+	 * checked. The version is bumped so that concurrent writers notice.
+	 */
+	@Modifying
+	@Transactional
+	@Query("update Cart c set c.totalCents = :computedCents, c.version = c.version + 1"
+			+ " where c.id = :id and c.totalCents = :storedCents")
+	int repairTotal(@Param("id") Long id, @Param("storedCents") long storedCents,
+			@Param("computedCents") long computedCents);
+
+	interface CartTotal {
+		Long getId();
+
+		long getStoredCents();
+
+		long getComputedCents();
+	}
 }
@@ -0,0 +1,8 @@
+package com.example.demo.model.persistence.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.demo.model.persistence.CatalogImportJob;
+
+public interface CatalogImportJobRepository extends JpaRepository<CatalogImportJob, Long> {
+}
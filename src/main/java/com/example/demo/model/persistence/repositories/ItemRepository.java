@@ -1,12 +1,49 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.Item;
 
+/**
+ * Methods hinted with cache mode {@code GET} read the second-level cache but
+ * never add to it. They serve reads that may run on a lagging replica, which
+ * must not put rows older than the last committed write into the caches that
+ * cart and order writes rely on.
+ */
 public interface ItemRepository extends JpaRepository<Item, Long> {
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
 	public List<Item> findByName(String name);
 
+	@QueryHints(@QueryHint(name = HINT_CACHE_MODE, value = "GET"))
+	public List<Item> findUncachedByName(String name);
+
+	@QueryHints(@QueryHint(name = HINT_CACHE_MODE, value = "GET"))
+	public List<Item> findUncachedByIdIn(Collection<Long> ids);
+
+	@Query("select i from Item i")
+	@QueryHints(@QueryHint(name = HINT_CACHE_MODE, value = "GET"))
+	public List<Item> findAllUncached();
+
+	public List<Item> findBySkuIn(Collection<String> skus);
+
+	@QueryHints(@QueryHint(name = HINT_CACHE_MODE, value = "GET"))
+	public List<Item> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	@Query("select i from Item i order by i.id")
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_CACHE_MODE, value = "GET") })
+	public Stream<Item> streamAllOrderById();
+
 }
@@ -0,0 +1,34 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.ItemStock;
+
+public interface ItemStockRepository extends JpaRepository<ItemStock, Long> {
+
+	/**
+	 * Takes {@code quantity} units if at least that many are left and returns
+	 * the number of rows changed, 0 if there were not enough. The check and
+	 * the decrement are one statement, so concurrent orders can never oversell
+	 * and none of them reads the row first.
+	 */
+	@Modifying
+	@Transactional
+	@Query("update ItemStock s set s.quantity = s.quantity - :quantity"
+			+ " where s.itemId = :itemId and s.quantity >= :quantity")
+	int take(@Param("itemId") Long itemId, @Param("quantity") long quantity);
+
+	/**
+	 * The ids among {@code itemIds} that have a stock row, without loading
+	 * the rows.
+	 */
+	@Query("select s.itemId from ItemStock s where s.itemId in :itemIds")
+	List<Long> findTrackedItemIds(@Param("itemIds") Collection<Long> itemIds);
+}
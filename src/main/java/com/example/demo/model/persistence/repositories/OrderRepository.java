@@ -1,12 +1,91 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderStatusResponse;
 
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
-	List<UserOrder> findByUser(User user);
+
+	String ORDER_LINES = "select o.id as orderId, o.createdAt as createdAt, o.total as total, o.status as status,"
+			+ " i.id as itemId, i.sku as sku, i.name as name, l.unitPriceCents as unitPriceCents,"
+			+ " l.quantity as quantity"
+			+ " from UserOrder o left join o.lines l left join l.item i";
+
+	/**
+	 * A user's orders as one row per order line, in order id order. Only the
+	 * columns the API returns are selected.
+	 */
+	@Query(ORDER_LINES + " where o.user = :user order by o.id, i.id")
+	List<OrderLine> findLinesByUser(@Param("user") User user);
+
+	UserOrder findByUserAndIdempotencyKey(User user, String idempotencyKey);
+
+	/**
+	 * Ids of a user's orders placed in {@code [from, to)}, newest first,
+	 * strictly after the keyset position {@code (beforeTime, beforeId)}. Only
+	 * ids are selected so the page limit applies to orders rather than to
+	 * order lines, and the walk stays on the (user_id, created_at)
+	 * index.
+	 */
+	@Query("select o.id from UserOrder o where o.user = :user"
+			+ " and o.createdAt >= :from and o.createdAt < :to"
+			+ " and (o.createdAt < :beforeTime or (o.createdAt = :beforeTime and o.id < :beforeId))"
+			+ " order by o.createdAt desc, o.id desc")
+	List<Long> findHistoryIds(@Param("user") User user, @Param("from") Instant from, @Param("to") Instant to,
+			@Param("beforeTime") Instant beforeTime, @Param("beforeId") Long beforeId, Pageable pageable);
+
+	@Query(ORDER_LINES + " where o.id in :ids order by o.createdAt desc, o.id desc, i.id")
+	List<OrderLine> findLinesByIdIn(@Param("ids") Collection<Long> ids);
+
+	Optional<OrderStatusResponse> findStatusByIdAndUser(long id, User user);
+
+	/**
+	 * Orders in {@code status} that have not moved since {@code before},
+	 * oldest first, with the pipeline stage each one is waiting for.
+	 */
+	@Query("select o.id as id, o.stage as stage from UserOrder o"
+			+ " where o.status = :status and o.updatedAt < :before order by o.updatedAt")
+	List<StalledOrder> findStalled(@Param("status") UserOrder.Status status, @Param("before") Instant before,
+			Pageable pageable);
+
+	/**
+	 * One line of an order, priced as it was ordered. An order without lines
+	 * yields a single row whose line columns are null.
+	 */
+	interface OrderLine {
+		Long getOrderId();
+
+		Instant getCreatedAt();
+
+		BigDecimal getTotal();
+
+		UserOrder.Status getStatus();
+
+		Long getItemId();
+
+		String getSku();
+
+		String getName();
+
+		Long getUnitPriceCents();
+
+		Integer getQuantity();
+	}
+
+	interface StalledOrder {
+		Long getId();
+
+		String getStage();
+	}
 }
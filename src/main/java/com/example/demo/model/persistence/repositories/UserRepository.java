@@ -1,9 +1,18 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.demo.model.persistence.User;
+import com.example.demo.model.responses.UserResponse;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+
+	/**
+	 * Selects only the id and username, without loading the user's cart.
+	 */
+	Optional<UserResponse> findResponseById(long id);
 
-public interface UserRepository extends JpaRepository<User, Long> {
-	User findByUsername(String username);
+	UserResponse findResponseByUsername(String username);
 }
@@ -0,0 +1,12 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.User;
+
+public interface UserRepositoryCustom {
+
+	/**
+	 * Loads a user by its natural id. Repeated lookups are answered from the
+	 * second-level cache instead of querying the {@code user} table.
+	 */
+	User findByUsername(String username);
+}
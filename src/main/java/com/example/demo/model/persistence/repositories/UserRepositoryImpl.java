@@ -0,0 +1,29 @@
+package com.example.demo.model.persistence.repositories;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * Spring Data picks this fragment up by name and uses it in place of the
+ * derived query, which would always go to the database.
+ */
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	// Transactional so the session is still open when called outside of a
+	// request, e.g. from the authentication filter.
+	@Override
+	@Transactional(readOnly = true)
+	public User findByUsername(String username) {
+		return entityManager.unwrap(Session.class)
+				.bySimpleNaturalId(User.class)
+				.load(username);
+	}
+}
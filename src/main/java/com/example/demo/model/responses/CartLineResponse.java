@@ -0,0 +1,66 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.CartLine;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartLineResponse {
+
+	@JsonProperty
+	private Long itemId;
+
+	@JsonProperty
+	private String sku;
+
+	@JsonProperty
+	private String name;
+
+	@JsonProperty
+	private int quantity;
+
+	@JsonProperty
+	private BigDecimal unitPrice;
+
+	@JsonProperty
+	private BigDecimal subtotal;
+
+	public CartLineResponse(Long itemId, String sku, String name, int quantity, BigDecimal unitPrice,
+			BigDecimal subtotal) {
+		this.itemId = itemId;
+		this.sku = sku;
+		this.name = name;
+		this.quantity = quantity;
+		this.unitPrice = unitPrice;
+		this.subtotal = subtotal;
+	}
+
+	public static CartLineResponse from(CartLine line) {
+		return new CartLineResponse(line.getItemId(), line.getItem().getSku(), line.getItem().getName(),
+				line.getQuantity(), line.getUnitPrice(), line.getSubtotal());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public BigDecimal getUnitPrice() {
+		return unitPrice;
+	}
+
+	public BigDecimal getSubtotal() {
+		return subtotal;
+	}
+}
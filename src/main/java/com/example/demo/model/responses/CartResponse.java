@@ -0,0 +1,47 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartResponse {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	private List<CartLineResponse> lines;
+
+	@JsonProperty
+	private BigDecimal total;
+
+	public CartResponse(Long id, List<CartLineResponse> lines, BigDecimal total) {
+		this.id = id;
+		this.lines = lines;
+		this.total = total;
+	}
+
+	public static CartResponse from(Cart cart) {
+		List<CartLineResponse> lines = new ArrayList<>(cart.getLines().size());
+		for (CartLine line : cart.getLines()) {
+			lines.add(CartLineResponse.from(line));
+		}
+		return new CartResponse(cart.getId(), lines, cart.getTotal());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<CartLineResponse> getLines() {
+		return lines;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderHistoryPage {
+
+	@JsonProperty
+	private List<OrderResponse> orders;
+
+	@JsonProperty
+	private String nextCursor;
+
+	public OrderHistoryPage(List<OrderResponse> orders, String nextCursor) {
+		this.orders = orders;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<OrderResponse> getOrders() {
+		return orders;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
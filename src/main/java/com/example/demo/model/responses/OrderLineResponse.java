@@ -0,0 +1,51 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderLineResponse {
+
+	@JsonProperty
+	private Long itemId;
+
+	@JsonProperty
+	private String sku;
+
+	@JsonProperty
+	private String name;
+
+	@JsonProperty
+	private BigDecimal price;
+
+	@JsonProperty
+	private int quantity;
+
+	public OrderLineResponse(Long itemId, String sku, String name, BigDecimal price, int quantity) {
+		this.itemId = itemId;
+		this.sku = sku;
+		this.name = name;
+		this.price = price;
+		this.quantity = quantity;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
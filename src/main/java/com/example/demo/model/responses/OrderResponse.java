@@ -0,0 +1,95 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderLine;
+import com.example.demo.model.persistence.repositories.OrderRepository.OrderLine;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An order as returned by the API. An item that was ordered several times
+ * appears once, with its quantity and the unit price it was ordered at.
+ */
+public class OrderResponse {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	private Instant createdAt;
+
+	@JsonProperty
+	private BigDecimal total;
+
+	@JsonProperty
+	private UserOrder.Status status;
+
+	@JsonProperty
+	private List<OrderLineResponse> lines;
+
+	public OrderResponse(Long id, Instant createdAt, BigDecimal total, UserOrder.Status status,
+			List<OrderLineResponse> lines) {
+		this.id = id;
+		this.createdAt = createdAt;
+		this.total = total;
+		this.status = status;
+		this.lines = lines;
+	}
+
+	public static OrderResponse from(UserOrder order) {
+		List<OrderLineResponse> lines = new ArrayList<>(order.getLines().size());
+		for (UserOrderLine line : order.getLines()) {
+			Item item = line.getItem();
+			lines.add(new OrderLineResponse(item.getId(), item.getSku(), item.getName(), line.getUnitPrice(),
+					line.getQuantity()));
+		}
+		return new OrderResponse(order.getId(), order.getCreatedAt(), order.getTotal(), order.getStatus(), lines);
+	}
+
+	/**
+	 * Assembles orders from projected rows, which must be grouped by order.
+	 * Orders keep the order of the rows.
+	 */
+	public static List<OrderResponse> fromLines(List<? extends OrderLine> rows) {
+		List<OrderResponse> orders = new ArrayList<>();
+		OrderResponse current = null;
+		for (OrderLine row : rows) {
+			if (current == null || !current.id.equals(row.getOrderId())) {
+				current = new OrderResponse(row.getOrderId(), row.getCreatedAt(), row.getTotal(), row.getStatus(),
+						new ArrayList<>());
+				orders.add(current);
+			}
+			if (row.getItemId() != null) {
+				current.lines.add(new OrderLineResponse(row.getItemId(), row.getSku(), row.getName(),
+						Money.fromCents(row.getUnitPriceCents()), row.getQuantity()));
+			}
+		}
+		return orders;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public UserOrder.Status getStatus() {
+		return status;
+	}
+
+	public List<OrderLineResponse> getLines() {
+		return lines;
+	}
+}
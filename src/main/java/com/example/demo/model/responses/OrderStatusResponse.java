@@ -0,0 +1,57 @@
+package com.example.demo.model.responses;
+
+import java.time.Instant;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Where an order is in the order pipeline. {@code stage} names the stage the
+ * order is waiting for while it is pending.
+ */
+public class OrderStatusResponse {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	private UserOrder.Status status;
+
+	@JsonProperty
+	private String stage;
+
+	@JsonProperty
+	private String failureReason;
+
+	@JsonProperty
+	private Instant updatedAt;
+
+	public OrderStatusResponse(Long id, UserOrder.Status status, String stage, String failureReason,
+			Instant updatedAt) {
+		this.id = id;
+		this.status = status;
+		this.stage = stage;
+		this.failureReason = failureReason;
+		this.updatedAt = updatedAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public UserOrder.Status getStatus() {
+		return status;
+	}
+
+	public String getStage() {
+		return stage;
+	}
+
+	public String getFailureReason() {
+		return failureReason;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An item's stored stock and the units this instance can still reserve,
+ * which is the stock less what carts and pending orders hold.
+ */
+public class StockResponse {
+
+	@JsonProperty
+	private Long itemId;
+
+	@JsonProperty
+	private long quantity;
+
+	@JsonProperty
+	private long available;
+
+	public StockResponse(Long itemId, long quantity, long available) {
+		this.itemId = itemId;
+		this.quantity = quantity;
+		this.available = available;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+
+	public long getAvailable() {
+		return available;
+	}
+}
@@ -0,0 +1,30 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.User;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class UserResponse {
+
+	@JsonProperty
+	private long id;
+
+	@JsonProperty
+	private String username;
+
+	public UserResponse(long id, String username) {
+		this.id = id;
+		this.username = username;
+	}
+
+	public static UserResponse from(User user) {
+		return new UserResponse(user.getId(), user.getUsername());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.demo.orders;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * Takes the order's units from the stored stock. An order that finds an item
+ * sold out fails here with nothing taken.
+ */
+@Component
+@Order(100)
+public class InventoryStage implements OrderStage {
+
+	private final InventoryService inventoryService;
+
+	public InventoryStage(InventoryService inventoryService) {
+		this.inventoryService = inventoryService;
+	}
+
+	@Override
+	public String getName() {
+		return "inventory";
+	}
+
+	@Override
+	public void process(UserOrder order) {
+		inventoryService.takeStock(order);
+	}
+}
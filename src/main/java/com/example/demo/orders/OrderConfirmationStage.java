@@ -0,0 +1,38 @@
+package com.example.demo.orders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.metrics.ShopMetrics;
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * Last stage of the pipeline: the order has passed every earlier stage and
+ * is recorded as confirmed.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class OrderConfirmationStage implements OrderStage {
+
+	private static final Logger logger = LoggerFactory.getLogger(OrderConfirmationStage.class);
+
+	private final ShopMetrics shopMetrics;
+
+	public OrderConfirmationStage(ShopMetrics shopMetrics) {
+		this.shopMetrics = shopMetrics;
+	}
+
+	@Override
+	public String getName() {
+		return "confirmation";
+	}
+
+	@Override
+	public void process(UserOrder order) {
+		shopMetrics.orderConfirmed(order);
+		logger.info("Confirmed order {} for user {}", order.getId(), order.getUser().getUsername());
+	}
+}
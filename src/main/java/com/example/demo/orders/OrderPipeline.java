@@ -0,0 +1,353 @@
+package com.example.demo.orders;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository.StalledOrder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Moves accepted orders through the {@link OrderStage}s on background
+ * workers, so submitting an order only has to save it. Every stage has its
+ * own bounded queue of order ids and {@code orders.pipeline.workers} threads,
+ * or {@code orders.pipeline.stages.<name>.workers} for that stage, and hands
+ * each order to the next stage's queue once its transaction has committed.
+ * A full downstream queue makes the upstream workers wait.
+ * <p>
+ * The order row, not the queue, is the record of progress: each stage's
+ * transaction stores the next stage the order is waiting for. An order whose
+ * id was dropped because the first queue was full, or lost in a restart, is
+ * queued again by {@link #recoverStalled()} once it has not moved for
+ * {@code orders.pipeline.stall-ms}. The order's version keeps two workers,
+ * or two instances, from both moving the same order on.
+ * <p>
+ * The workers are started once the application context has been refreshed
+ * and stopped before its beans are destroyed.
+ */
+@Component
+public class OrderPipeline implements SmartLifecycle {
+
+	private static final Logger logger = LoggerFactory.getLogger(OrderPipeline.class);
+
+	private static final long STOP_WAIT_MILLIS = 5000;
+
+	private final OrderRepository orderRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final MeterRegistry meterRegistry;
+
+	private final List<Stage> stages = new ArrayList<>();
+
+	private final Map<String, Stage> stagesByName = new HashMap<>();
+
+	private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+	private final long stallMillis;
+
+	private final int recoveryBatchSize;
+
+	private final Counter overflow;
+
+	private final Counter recovered;
+
+	private volatile boolean running;
+
+	public OrderPipeline(OrderRepository orderRepository, PlatformTransactionManager transactionManager,
+			List<OrderStage> orderStages, Environment environment, MeterRegistry meterRegistry,
+			@Value("${orders.pipeline.workers:2}") int workers,
+			@Value("${orders.pipeline.queue-capacity:1000}") int queueCapacity,
+			@Value("${orders.pipeline.stall-ms:60000}") long stallMillis,
+			@Value("${orders.pipeline.recovery-batch-size:500}") int recoveryBatchSize) {
+		if (orderStages.isEmpty()) {
+			throw new IllegalArgumentException("The order pipeline needs at least one stage");
+		}
+		this.orderRepository = orderRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.meterRegistry = meterRegistry;
+		this.stallMillis = stallMillis;
+		this.recoveryBatchSize = Math.max(1, recoveryBatchSize);
+		this.overflow = Counter.builder("orders.pipeline.overflow")
+				.description("Orders left for recovery because the first stage's queue was full")
+				.register(meterRegistry);
+		this.recovered = Counter.builder("orders.pipeline.recovered")
+				.description("Stalled orders put back on a stage queue")
+				.register(meterRegistry);
+		Gauge.builder("orders.pipeline.in-flight", inFlight, Set::size)
+				.description("Orders queued or being processed by this instance")
+				.register(meterRegistry);
+		for (OrderStage orderStage : orderStages) {
+			int stageWorkers = environment.getProperty("orders.pipeline.stages." + orderStage.getName() + ".workers",
+					Integer.class, workers);
+			Stage stage = new Stage(orderStage, stages.size(), Math.max(1, queueCapacity), Math.max(1, stageWorkers));
+			if (stagesByName.put(stage.getName(), stage) != null) {
+				throw new IllegalArgumentException("Duplicate order stage " + stage.getName());
+			}
+			stages.add(stage);
+			Gauge.builder("orders.pipeline.queue.depth", stage.queue, BlockingQueue::size)
+					.description("Orders waiting for a stage")
+					.tag("stage", stage.getName())
+					.register(meterRegistry);
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		for (Stage stage : stages) {
+			for (int i = 1; i <= stage.workerCount; i++) {
+				Thread thread = new Thread(() -> work(stage), "order-" + stage.getName() + "-" + i);
+				thread.setDaemon(true);
+				stage.workers.add(thread);
+				thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Interrupts the workers and waits a little for each to finish the order
+	 * it is processing. Orders still queued are processed once the pipeline
+	 * is started again.
+	 */
+	@Override
+	public synchronized void stop() {
+		running = false;
+		stages.forEach(stage -> stage.workers.forEach(Thread::interrupt));
+		for (Stage stage : stages) {
+			for (Thread worker : stage.workers) {
+				try {
+					worker.join(STOP_WAIT_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			stage.workers.clear();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Puts a new order at the start of the pipeline. Call before the order is
+	 * saved; its id is queued once the surrounding transaction commits.
+	 */
+	public void accept(UserOrder order) {
+		Stage first = stages.get(0);
+		order.advanceTo(first.getName());
+		afterCommit(() -> {
+			if (!offer(first, order.getId())) {
+				overflow.increment();
+				logger.debug("Order {} is left for recovery because the {} queue is full", order.getId(),
+						first.getName());
+			}
+		});
+	}
+
+	/**
+	 * Queues pending orders that have not moved for
+	 * {@code orders.pipeline.stall-ms}, and are not already queued on this
+	 * instance, at the stage each one is waiting for.
+	 */
+	@Scheduled(initialDelayString = "${orders.pipeline.recovery-interval-ms:10000}",
+			fixedDelayString = "${orders.pipeline.recovery-interval-ms:10000}")
+	public int recoverStalled() {
+		Instant before = Instant.now().minusMillis(stallMillis);
+		List<StalledOrder> stalled = orderRepository.findStalled(UserOrder.Status.PENDING, before,
+				PageRequest.of(0, recoveryBatchSize));
+		int requeued = 0;
+		for (StalledOrder order : stalled) {
+			Stage stage = stagesByName.get(order.getStage());
+			if (stage == null) {
+				fail(order.getId(), "Unknown order stage " + order.getStage());
+				continue;
+			}
+			if (inFlight.contains(order.getId())) {
+				continue;
+			}
+			if (!offer(stage, order.getId())) {
+				break;
+			}
+			requeued++;
+		}
+		if (requeued > 0) {
+			recovered.increment(requeued);
+			logger.info("Requeued {} stalled orders", requeued);
+		}
+		return requeued;
+	}
+
+	private boolean offer(Stage stage, Long orderId) {
+		if (!inFlight.add(orderId)) {
+			return true;
+		}
+		if (!stage.queue.offer(orderId)) {
+			inFlight.remove(orderId);
+			return false;
+		}
+		return true;
+	}
+
+	private void work(Stage stage) {
+		while (running) {
+			Long orderId;
+			try {
+				orderId = stage.queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				process(stage, orderId);
+			} catch (RuntimeException e) {
+				inFlight.remove(orderId);
+				logger.error("Order {} stays at stage {} until it is recovered", orderId, stage.getName(), e);
+			}
+		}
+	}
+
+	private void process(Stage stage, Long orderId) {
+		long start = System.nanoTime();
+		String outcome;
+		try {
+			outcome = transactionTemplate.execute(status -> {
+				UserOrder order = orderRepository.findById(orderId).orElse(null);
+				if (order == null || order.getStatus() != UserOrder.Status.PENDING
+						|| !stage.getName().equals(order.getStage())) {
+					return "skipped";
+				}
+				stage.stage.process(order);
+				if (stage.next() == null) {
+					order.confirmed();
+					return "confirmed";
+				}
+				order.advanceTo(stage.next().getName());
+				return "advanced";
+			});
+		} catch (OptimisticLockingFailureException e) {
+			// Another worker or instance moved the order on first.
+			outcome = "conflict";
+		} catch (TransientDataAccessException | CannotCreateTransactionException e) {
+			logger.warn("Order {} stays at stage {} until it is recovered: {}", orderId, stage.getName(), e.toString());
+			outcome = "retry";
+		} catch (RuntimeException e) {
+			logger.warn("Order {} failed at stage {}: {}", orderId, stage.getName(), e.toString());
+			outcome = fail(orderId, e.getMessage() == null ? e.toString() : e.getMessage()) ? "failed" : "retry";
+		}
+		stage.timer(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		if ("advanced".equals(outcome)) {
+			handOff(stage.next(), orderId);
+		} else {
+			inFlight.remove(orderId);
+		}
+	}
+
+	private void handOff(Stage next, Long orderId) {
+		try {
+			next.queue.put(orderId);
+		} catch (InterruptedException e) {
+			inFlight.remove(orderId);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private boolean fail(Long orderId, String reason) {
+		try {
+			transactionTemplate.execute(status -> {
+				orderRepository.findById(orderId)
+						.filter(order -> order.getStatus() == UserOrder.Status.PENDING)
+						.ifPresent(order -> order.failed(reason));
+				return null;
+			});
+			return true;
+		} catch (RuntimeException e) {
+			logger.error("Could not mark order {} as failed", orderId, e);
+			return false;
+		}
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private final class Stage {
+		private final OrderStage stage;
+
+		private final int index;
+
+		private final BlockingQueue<Long> queue;
+
+		private final int workerCount;
+
+		private final List<Thread> workers = new ArrayList<>();
+
+		private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+		private Stage(OrderStage stage, int index, int queueCapacity, int workerCount) {
+			this.stage = stage;
+			this.index = index;
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+			this.workerCount = workerCount;
+		}
+
+		private String getName() {
+			return stage.getName();
+		}
+
+		private Stage next() {
+			return index + 1 < stages.size() ? stages.get(index + 1) : null;
+		}
+
+		private Timer timer(String outcome) {
+			return timers.computeIfAbsent(outcome, o -> Timer.builder("orders.pipeline.stage")
+					.description("Time taken by one order pipeline stage")
+					.tag("stage", getName())
+					.tag("outcome", o)
+					.register(meterRegistry));
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.example.demo.orders;
+
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * One step an order goes through after it has been accepted. Stages are
+ * beans, run in their {@link org.springframework.core.annotation.Order}, each
+ * on its own workers; see {@link OrderPipeline}.
+ */
+public interface OrderStage {
+
+	/**
+	 * Short name reported in the order status and used in the
+	 * {@code orders.pipeline.stages.<name>.workers} property.
+	 */
+	String getName();
+
+	/**
+	 * Does this stage's work on {@code order}. Runs in the transaction that
+	 * moves the order on to the next stage, so it is rolled back together
+	 * with that move. A stage may run more than once for the same order if
+	 * the process dies before that transaction commits. Throwing fails the
+	 * order with the exception's message.
+	 */
+	void process(UserOrder order);
+}
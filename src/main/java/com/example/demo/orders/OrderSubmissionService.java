@@ -0,0 +1,55 @@
+package com.example.demo.orders;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+
+/**
+ * Turns a user's cart into a pending order and empties the cart in the same
+ * transaction. The stock reserved for the cart is held for the order, which
+ * is processed afterwards by the {@link OrderPipeline}.
+ * <p>
+ * Nothing is locked while the order is built. The cart carries a version, so
+ * if it was changed or submitted by another request since it was read, the
+ * commit fails with an optimistic locking exception and no order is written.
+ * A repeated idempotency key is rejected by the unique constraint on
+ * (user_id, idempotency_key), which holds across every application instance.
+ */
+@Component
+public class OrderSubmissionService {
+
+	private final OrderRepository orderRepository;
+
+	private final CartRepository cartRepository;
+
+	private final OrderPipeline orderPipeline;
+
+	private final InventoryService inventoryService;
+
+	public OrderSubmissionService(OrderRepository orderRepository, CartRepository cartRepository,
+			OrderPipeline orderPipeline, InventoryService inventoryService) {
+		this.orderRepository = orderRepository;
+		this.cartRepository = cartRepository;
+		this.orderPipeline = orderPipeline;
+		this.inventoryService = inventoryService;
+	}
+
+	@Transactional
+	public UserOrder submit(User user, String idempotencyKey) {
+		Cart cart = user.getCart();
+		UserOrder order = UserOrder.createFromCart(cart);
+		order.setIdempotencyKey(idempotencyKey);
+		inventoryService.holdForOrder(cart.getId(), order);
+		orderPipeline.accept(order);
+		orderRepository.save(order);
+		cart.clear();
+		cartRepository.save(cart);
+		return order;
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Thrown when the password hashing pool cannot take more work. It extends
+ * {@link AuthenticationServiceException} so it travels through the login
+ * flow like any other authentication failure and can be answered with 503.
+ */
+public class HashingCapacityExceededException extends AuthenticationServiceException {
+
+    public HashingCapacityExceededException(String msg) {
+        super(msg);
+    }
+
+    public HashingCapacityExceededException(String msg, Throwable t) {
+        super(msg, t);
+    }
+}
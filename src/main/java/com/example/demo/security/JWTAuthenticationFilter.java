@@ -3,10 +3,15 @@ package com.example.demo.security;
 import com.auth0.jwt.JWT;
 import com.example.demo.model.persistence.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import javax.servlet.FilterChain;
@@ -16,14 +21,16 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
 
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private AuthenticationManager authenticationManager;
 
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager) {
+    private MeterRegistry meterRegistry;
+
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, MeterRegistry meterRegistry) {
         this.authenticationManager = authenticationManager;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -33,11 +40,25 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
             User credentials = new ObjectMapper()
                     .readValue(req.getInputStream(), User.class);
 
-            return authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            credentials.getUsername(),
-                            credentials.getPassword(),
-                            new ArrayList<>()));
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "failure";
+            try {
+                Authentication authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                credentials.getUsername(),
+                                credentials.getPassword(),
+                                new ArrayList<>()));
+                outcome = "success";
+                return authentication;
+            } catch (HashingCapacityExceededException e) {
+                outcome = "rejected";
+                throw e;
+            } finally {
+                sample.stop(Timer.builder("security.login")
+                        .description("Time to check login credentials")
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -52,7 +73,20 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         String token = JWT.create()
                 .withSubject(((org.springframework.security.core.userdetails.User) auth.getPrincipal()).getUsername())
                 .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
-                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+                .sign(SecurityConstants.ALGORITHM);
         res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
     }
+
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest req,
+                                              HttpServletResponse res,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof HashingCapacityExceededException) {
+            SecurityContextHolder.clearContext();
+            res.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            res.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        super.unsuccessfulAuthentication(req, res, failed);
+    }
 }
\ No newline at end of file
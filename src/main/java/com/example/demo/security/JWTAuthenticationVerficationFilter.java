@@ -1,12 +1,13 @@
 package com.example.demo.security;
 
-
-import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
-import org.springframework.stereotype.Component;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -14,14 +15,36 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
-
-@Component
 public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilter {
 
-    public JWTAuthenticationVerficationFilter(AuthenticationManager authManager) {
+    private final JWTVerificationCache verificationCache;
+
+    private final Set<String> catalogAdmins;
+
+    private final Timer validTokens;
+
+    private final Timer invalidTokens;
+
+    public JWTAuthenticationVerficationFilter(AuthenticationManager authManager,
+                                              JWTVerificationCache verificationCache,
+                                              Set<String> catalogAdmins,
+                                              MeterRegistry meterRegistry) {
         super(authManager);
+        this.verificationCache = verificationCache;
+        this.catalogAdmins = catalogAdmins;
+        this.validTokens = verificationTimer(meterRegistry, "valid");
+        this.invalidTokens = verificationTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.jwt.verification")
+                .description("Time to verify the bearer token of a request")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     @Override
@@ -43,9 +66,19 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
     private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest req) {
         String token = req.getHeader(SecurityConstants.HEADER_STRING);
         if (token != null) {
-            String user = JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
-                    .verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""))
-                    .getSubject();
+            long start = System.nanoTime();
+            String user;
+            try {
+                user = verificationCache.verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""));
+            } catch (JWTVerificationException e) {
+                invalidTokens.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+            (user != null ? validTokens : invalidTokens).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (user != null && catalogAdmins.contains(user)) {
+                return new UsernamePasswordAuthenticationToken(user, null,
+                        Collections.singletonList(new SimpleGrantedAuthority(SecurityConstants.CATALOG_ADMIN)));
+            }
             if (user != null) {
                 return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
             }
@@ -1,9 +1,13 @@
 package com.example.demo.security;
 
+import com.auth0.jwt.algorithms.Algorithm;
+
 public class SecurityConstants {
     public static final String SECRET = "oursecretkey";
     public static final long EXPIRATION_TIME = 864_000_000; // 10 days
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
     public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String CATALOG_ADMIN = "CATALOG_ADMIN";
+    public static final Algorithm ALGORITHM = Algorithm.HMAC512(SECRET.getBytes());
 }
\ No newline at end of file
@@ -2,26 +2,90 @@ package com.example.demo.security;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Loads login credentials, caching password hashes for a short time so that
+ * retry storms on the same accounts do not each hit the user table. Unknown
+ * usernames are cached too, for a shorter time, and
+ * {@link #evict(String)} drops an entry as soon as the account is created.
+ */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     @Autowired
     private UserRepository userRepository;
 
+    private final Cache<String, Optional<String>> passwordHashes;
+
+    public UserDetailsServiceImpl(MeterRegistry meterRegistry,
+                                  @Value("${security.user-cache.ttl-seconds:30}") long ttlSeconds,
+                                  @Value("${security.user-cache.negative-ttl-seconds:5}") long negativeTtlSeconds,
+                                  @Value("${security.user-cache.max-size:10000}") long maxSize) {
+        this.passwordHashes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PositiveOrNegativeTtl(ttlSeconds, negativeTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, passwordHashes, "security.users");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
+        Optional<String> passwordHash = passwordHashes.get(username, this::findPasswordHash);
+        if (!passwordHash.isPresent()) {
             throw new UsernameNotFoundException(username);
         }
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), Collections.emptyList());
+        // Always hand out a new instance: the authentication manager erases
+        // credentials on the principal it returns.
+        return new org.springframework.security.core.userdetails.User(username, passwordHash.get(), Collections.emptyList());
+    }
+
+    public void evict(String username) {
+        passwordHashes.invalidate(username);
+    }
+
+    private Optional<String> findPasswordHash(String username) {
+        User user = userRepository.findByUsername(username);
+        return user == null ? Optional.empty() : Optional.of(user.getPassword());
+    }
+
+    private static final class PositiveOrNegativeTtl implements Expiry<String, Optional<String>> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private PositiveOrNegativeTtl(long ttlSeconds, long negativeTtlSeconds) {
+            this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+            this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<String> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<String> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<String> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
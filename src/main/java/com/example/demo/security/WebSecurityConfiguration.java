@@ -1,5 +1,7 @@
 package com.example.demo.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,28 +10,52 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Every endpoint except sign-up needs a valid token. Catalog imports, which
+ * overwrite items for everyone, additionally need the
+ * {@value SecurityConstants#CATALOG_ADMIN} authority, held by the users
+ * listed in {@code catalog.admin-usernames}; nobody holds it by default.
+ */
 @EnableWebSecurity
 public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     private UserDetailsServiceImpl userDetailsService;
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordHashingService passwordHashingService;
+    private JWTVerificationCache verificationCache;
+    private MeterRegistry meterRegistry;
+    private Set<String> catalogAdmins;
 
     public WebSecurityConfiguration(UserDetailsServiceImpl userDetailsService,
-                                    BCryptPasswordEncoder bCryptPasswordEncoder) {
+                                    PasswordHashingService passwordHashingService,
+                                    JWTVerificationCache verificationCache,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${catalog.admin-usernames:}") String[] catalogAdmins) {
         this.userDetailsService = userDetailsService;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.verificationCache = verificationCache;
+        this.meterRegistry = meterRegistry;
+        this.catalogAdmins = Arrays.stream(catalogAdmins)
+                .map(String::trim)
+                .filter(username -> !username.isEmpty())
+                .collect(Collectors.toSet());
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.cors().and().csrf().disable().authorizeRequests()
                 .antMatchers(HttpMethod.POST, SecurityConstants.SIGN_UP_URL).permitAll()
+                .antMatchers("/api/item/import", "/api/item/import/**")
+                        .hasAuthority(SecurityConstants.CATALOG_ADMIN)
                 .anyRequest().authenticated()
                 .and()
-                .addFilter(new JWTAuthenticationFilter(authenticationManager()))
-                .addFilter(new JWTAuthenticationVerficationFilter(authenticationManager()))
+                .addFilter(new JWTAuthenticationFilter(authenticationManager(), meterRegistry))
+                .addFilter(new JWTAuthenticationVerficationFilter(authenticationManager(), verificationCache,
+                        catalogAdmins, meterRegistry))
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
     }
 
@@ -41,8 +67,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.parentAuthenticationManager(authenticationManagerBean())
-                .userDetailsService(userDetailsService)
-                .passwordEncoder(bCryptPasswordEncoder);
+        auth.userDetailsService(userDetailsService)
+                .passwordEncoder(passwordHashingService);
     }
 }
\ No newline at end of file
@@ -1,2 +1,3 @@
-insert into item (name, price, description) values ('Round Widget', 2.99, 'A widget that is round');
-insert into item (name, price, description) values ('Square Widget', 1.99, 'A widget that is square');
\ No newline at end of file
+insert into item (id, sku, name, price, description) values (1, 'WIDGET-ROUND', 'Round Widget', 2.99, 'A widget that is round');
+insert into item (id, sku, name, price, description) values (2, 'WIDGET-SQUARE', 'Square Widget', 1.99, 'A widget that is square');
+alter sequence item_seq restart with 51;
@@ -0,0 +1,139 @@
+package com.example.demo.carts;
+
+import com.example.demo.TestUtils;
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CartStoreTests {
+    private CartRepository cartRepository = mock(CartRepository.class);
+    private PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private InventoryService inventoryService = mock(InventoryService.class);
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CartStore cartStore;
+
+    @Before
+    public void setup() {
+        when(transactionManager.getTransaction(Mockito.any())).thenReturn(mock(TransactionStatus.class));
+        cartStore = new CartStore(cartRepository, transactionManager, null, inventoryService, meterRegistry, true, 100, 10000);
+    }
+
+    @Test
+    public void modify_writeBehindFlushesOnSchedule_Test() {
+        // Stub
+        User user = createUser(createCart(1L));
+        Cart stored = createCart(1L);
+        when(cartRepository.findAllById(Mockito.anyIterable())).thenReturn(Collections.singletonList(stored));
+
+        // Test
+        Cart cart = cartStore.modify(user, c -> c.addItem(createItem(), 2));
+
+        // Verify
+        Assert.assertEquals(new BigDecimal("3.98"), cart.getTotal());
+        Assert.assertTrue(user.getCart().isEmpty());
+        Assert.assertEquals(1, cartStore.dirtyCount());
+        Assert.assertEquals(1.0, meterRegistry.get("cart.store.dirty").gauge().value(), 0.0);
+        verify(cartRepository, never()).save(Mockito.any(Cart.class));
+
+        cartStore.flushDirty();
+
+        Assert.assertEquals(0, cartStore.dirtyCount());
+        Assert.assertEquals(2, stored.getLine(createItem()).getQuantity());
+        Assert.assertEquals(new BigDecimal("3.98"), stored.getTotal());
+        Assert.assertEquals(1L, meterRegistry.get("cart.store.flush").tag("trigger", "scheduled").timer().count());
+        verify(inventoryService, never()).releaseCart(Mockito.anyLong());
+    }
+
+    @Test
+    public void flushDirty_dropsCartChangedElsewhere_Test() {
+        // Stub
+        User user = createUser(createCart(1L));
+        Cart stored = createCart(1L);
+        TestUtils.injectObject(stored, "version", 1L);
+        when(cartRepository.findAllById(Mockito.anyIterable())).thenReturn(Collections.singletonList(stored));
+
+        // Test
+        cartStore.modify(user, c -> c.addItem(createItem(), 1));
+        cartStore.flushDirty();
+
+        // Verify
+        Assert.assertEquals(0, cartStore.dirtyCount());
+        Assert.assertTrue(stored.isEmpty());
+        Assert.assertEquals(1.0, meterRegistry.get("cart.store.conflicts").counter().count(), 0.0);
+        verify(inventoryService).releaseCart(1L);
+    }
+
+    @Test
+    public void withFlushedCart_flushesBeforeAction_Test() {
+        // Stub
+        User user = createUser(createCart(1L));
+        Cart stored = user.getCart();
+        when(cartRepository.findAllById(Mockito.anyIterable())).thenReturn(Collections.singletonList(stored));
+        cartStore = new CartStore(cartRepository, transactionManager, mock(EntityManager.class),
+                inventoryService, meterRegistry, true, 100, 10000);
+        cartStore.modify(user, c -> c.addItem(createItem(), 1));
+
+        // Test
+        boolean flushed = cartStore.withFlushedCart(user, () -> !stored.isEmpty());
+
+        // Verify
+        Assert.assertTrue(flushed);
+        Assert.assertEquals(0, cartStore.dirtyCount());
+    }
+
+    @Test
+    public void modify_writeThroughSavesImmediately_Test() {
+        // Stub
+        cartStore = new CartStore(cartRepository, null, null, inventoryService, meterRegistry, false, 100, 10000);
+        User user = createUser(createCart(1L));
+
+        // Test
+        Cart cart = cartStore.modify(user, c -> c.addItem(createItem(), 1));
+
+        // Verify
+        Assert.assertSame(user.getCart(), cart);
+        verify(cartRepository).save(cart);
+        Assert.assertEquals(0, cartStore.dirtyCount());
+    }
+
+    private static User createUser(Cart cart) {
+        User user = new User();
+        user.setId(0L);
+        user.setUsername("test");
+        user.setCart(cart);
+        cart.setUser(user);
+        return user;
+    }
+
+    private static Cart createCart(Long id) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        return cart;
+    }
+
+    private static Item createItem() {
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(new BigDecimal("1.99"));
+        return item;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.carts;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class CartTotalCheckerTests {
+    private static final int CARTS = 7;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Long driftedCartId;
+
+    @Before
+    public void setup() {
+        Item widget = entityManager.persist(createStubItem("Widget", "2.99"));
+        Item gadget = entityManager.persist(createStubItem("Gadget", "0.10"));
+        for (int i = 0; i < CARTS; i++) {
+            Cart cart = new Cart();
+            cart.addItem(widget, i + 1);
+            cart.addItem(gadget, 3);
+            cart.removeItem(gadget, 1);
+            entityManager.persist(cart);
+            driftedCartId = cart.getId();
+        }
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("update Cart c set c.totalCents = c.totalCents + 1 where c.id = :id")
+                .setParameter("id", driftedCartId)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    @Test
+    public void checkTotals_reportsDriftAcrossBatches_Test() {
+        CartTotalChecker checker = new CartTotalChecker(cartRepository, meterRegistry, true, 3, false);
+
+        Assert.assertEquals(1, checker.checkTotals());
+        Assert.assertEquals(1.0, meterRegistry.get("cart.total.drift").counter().count(), 0.0);
+        Assert.assertEquals(1.0, meterRegistry.get("cart.total.drift.last").gauge().value(), 0.0);
+        Assert.assertEquals(new BigDecimal("21.14"), cartRepository.findById(driftedCartId).get().getTotal());
+    }
+
+    @Test
+    public void checkTotals_repairsDrift_Test() {
+        CartTotalChecker checker = new CartTotalChecker(cartRepository, meterRegistry, true, 3, true);
+
+        Assert.assertEquals(1, checker.checkTotals());
+        entityManager.clear();
+
+        Cart repaired = cartRepository.findById(driftedCartId).get();
+        Assert.assertEquals(new BigDecimal("21.13"), repaired.getTotal());
+        Assert.assertEquals(repaired.computeTotalCents(), repaired.getTotalCents());
+        Assert.assertEquals(0, checker.checkTotals());
+    }
+
+    private static Item createStubItem(String name, String price) {
+        Item item = new Item();
+        item.setName(name);
+        item.setPrice(new BigDecimal(price));
+        item.setDescription(name);
+        return item;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.CatalogImportJob;
+import com.example.demo.model.persistence.CatalogImportJob.Format;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CatalogImportJobRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class CatalogImporterTests {
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CatalogImportJobRepository jobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CatalogImporter catalogImporter;
+
+    @Before
+    public void setup() {
+        catalogImporter = new CatalogImporter(itemRepository, jobRepository, entityManager.getEntityManager(),
+                transactionManager, new ObjectMapper(), meterRegistry, "target", 2, 1);
+        Item existing = new Item();
+        existing.setSku("EXISTING");
+        existing.setName("Old name");
+        existing.setPrice(new BigDecimal("1.00"));
+        existing.setDescription("Old description");
+        entityManager.persistAndFlush(existing);
+    }
+
+    @Test
+    public void importCsv_upsertsBySku_Test() {
+        String csv = "sku,name,price,description\r\n"
+                + "EXISTING,New name,2.50,\"Quoted, with a comma and \"\"quotes\"\"\"\r\n"
+                + "NEW-1,First,3.00,\"Spans\ntwo lines\"\r\n"
+                + "\r\n"
+                + "NEW-2,Second,not-a-price,Broken\r\n"
+                + "NEW-3,Third,4.25\r\n";
+
+        CatalogImportJob job = catalogImporter.importRequestBody(Format.CSV, null, stream(csv));
+
+        Assert.assertEquals(CatalogImportJob.Status.COMPLETED, job.getStatus());
+        Assert.assertEquals(4, job.getRecordsCommitted());
+        Assert.assertEquals(2, job.getInserted());
+        Assert.assertEquals(1, job.getUpdated());
+        Assert.assertEquals(1, job.getRejected());
+        Item updated = itemRepository.findBySkuIn(Arrays.asList("EXISTING")).get(0);
+        Assert.assertEquals("New name", updated.getName());
+        Assert.assertEquals("Quoted, with a comma and \"quotes\"", updated.getDescription());
+        List<Item> inserted = itemRepository.findBySkuIn(Arrays.asList("NEW-1", "NEW-2", "NEW-3"));
+        Assert.assertEquals(2, inserted.size());
+        Assert.assertEquals(2.0, meterRegistry.get("catalog.import.records").tag("outcome", "inserted")
+                .counter().count(), 0.0);
+    }
+
+    @Test
+    public void importNdjson_resumesFromLastCommittedBatch_Test() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 1; i <= 5; i++) {
+            ndjson.append("{\"sku\":\"SKU-").append(i).append("\",\"name\":\"Item ").append(i)
+                    .append("\",\"price\":").append(i).append(".99}\n");
+        }
+        String body = ndjson.toString();
+        int failAt = body.indexOf("SKU-4");
+
+        CatalogImportJob failed = catalogImporter.importRequestBody(Format.NDJSON, null,
+                new FailingInputStream(stream(body), failAt));
+
+        Assert.assertEquals(CatalogImportJob.Status.FAILED, failed.getStatus());
+        Assert.assertEquals(2, failed.getRecordsCommitted());
+        Assert.assertNotNull(failed.getError());
+
+        CatalogImportJob resumed = catalogImporter.importRequestBody(Format.NDJSON, failed, stream(body));
+
+        Assert.assertEquals(CatalogImportJob.Status.COMPLETED, resumed.getStatus());
+        Assert.assertEquals(5, resumed.getRecordsCommitted());
+        Assert.assertEquals(5, resumed.getInserted());
+        Assert.assertNull(resumed.getError());
+        Assert.assertEquals(5, itemRepository.findBySkuIn(
+                Arrays.asList("SKU-1", "SKU-2", "SKU-3", "SKU-4", "SKU-5")).size());
+    }
+
+    @Test
+    public void importCsv_overlongNameIsRejected_Test() {
+        String csv = "sku,name,price\n"
+                + "LONG,\"" + repeat('n', 300) + "\",1.00\n"
+                + "SHORT,Short,2.00\n";
+
+        CatalogImportJob job = catalogImporter.importRequestBody(Format.CSV, null, stream(csv));
+
+        Assert.assertEquals(CatalogImportJob.Status.COMPLETED, job.getStatus());
+        Assert.assertEquals(1, job.getInserted());
+        Assert.assertEquals(1, job.getRejected());
+        Assert.assertTrue(itemRepository.findBySkuIn(Arrays.asList("LONG")).isEmpty());
+    }
+
+    @Test
+    public void importCsv_priceThatDoesNotFitColumnIsRejected_Test() {
+        String csv = "sku,name,price\n"
+                + "HUGE,Huge,123456789012345678.00\n"
+                + "FRACTION,Fraction,1.999\n"
+                + "ZEROS,Trailing zeros,1.500\n"
+                + "SHORT,Short,2.00\n";
+
+        CatalogImportJob job = catalogImporter.importRequestBody(Format.CSV, null, stream(csv));
+
+        Assert.assertEquals(CatalogImportJob.Status.COMPLETED, job.getStatus());
+        Assert.assertEquals(2, job.getInserted());
+        Assert.assertEquals(2, job.getRejected());
+        Assert.assertEquals(0, new BigDecimal("1.50").compareTo(
+                itemRepository.findBySkuIn(Arrays.asList("ZEROS")).get(0).getPrice()));
+    }
+
+    @Test
+    public void importNdjson_overlongLineIsRejected_Test() {
+        String ndjson = "{\"sku\":\"LONG\",\"name\":\"Long\",\"price\":1.00,\"description\":\""
+                + repeat('d', NdjsonCatalogRecordReader.MAX_LINE_LENGTH) + "\"}\n"
+                + "{\"sku\":\"SHORT\",\"name\":\"Short\",\"price\":2.00}\n";
+
+        CatalogImportJob job = catalogImporter.importRequestBody(Format.NDJSON, null, stream(ndjson));
+
+        Assert.assertEquals(CatalogImportJob.Status.COMPLETED, job.getStatus());
+        Assert.assertEquals(2, job.getRecordsCommitted());
+        Assert.assertEquals(1, job.getInserted());
+        Assert.assertEquals(1, job.getRejected());
+    }
+
+    @Test
+    public void importCsv_missingColumnFails_Test() {
+        CatalogImportJob job = catalogImporter.importRequestBody(Format.CSV, null, stream("sku,title\nA,B\n"));
+
+        Assert.assertEquals(CatalogImportJob.Status.FAILED, job.getStatus());
+        Assert.assertEquals(0, job.getRecordsCommitted());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class FailingInputStream extends FilterInputStream {
+        private long remaining;
+
+        private FailingInputStream(InputStream in, long failAfter) {
+            super(in);
+            this.remaining = failAfter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining-- <= 0) {
+                throw new IOException("connection reset");
+            }
+            return super.read();
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), Math.max(0, remaining));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                throw new IOException("connection reset");
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.catalog;
+
+import com.example.demo.datasource.ReplicaScope;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+// The item is written with plain JDBC and committed, as a write from another
+// instance would be, so that only the reads under test fill the caches.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ItemCatalogCacheTests {
+    private static final long ITEM_ID = 1000L;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ItemCatalogCache catalogCache;
+
+    private Cache secondLevelCache;
+
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+        jdbcTemplate.update("insert into item (id, sku, name, price, description) values (?, ?, ?, ?, ?)",
+                ITEM_ID, "REPLICA-TEST", "Replica test", new BigDecimal("1.00"), "");
+        catalogCache = new ItemCatalogCache(itemRepository, new SimpleMeterRegistry(), 60, 100);
+        secondLevelCache = entityManagerFactory.getCache();
+        secondLevelCache.evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from item where id = ?", ITEM_ID);
+        secondLevelCache.evictAll();
+    }
+
+    @Test
+    public void findById_replicaReadAfterEvictionIsNotCached_Test() {
+        Assert.assertEquals(new BigDecimal("1.00"), catalogCache.findById(ITEM_ID).get().getPrice());
+
+        // An update commits and its eviction runs, then a replica read comes in
+        jdbcTemplate.update("update item set price = ? where id = ?", new BigDecimal("2.00"), ITEM_ID);
+        secondLevelCache.evict(Item.class, ITEM_ID);
+        catalogCache.invalidate(ITEM_ID);
+        Assert.assertTrue(inReplicaScope(() -> catalogCache.findById(ITEM_ID)).isPresent());
+
+        Assert.assertFalse(secondLevelCache.contains(Item.class, ITEM_ID));
+        long statements = statistics.getPrepareStatementCount();
+        Assert.assertEquals(new BigDecimal("2.00"), catalogCache.findById(ITEM_ID).get().getPrice());
+        Assert.assertEquals(statements + 1, statistics.getPrepareStatementCount());
+        Assert.assertTrue(secondLevelCache.contains(Item.class, ITEM_ID));
+    }
+
+    @Test
+    public void findAll_replicaReadIsServedFromCacheButNeverFillsIt_Test() {
+        List<Item> fromReplica = inReplicaScope(() -> catalogCache.findAll());
+
+        Assert.assertTrue(fromReplica.stream().anyMatch(item -> item.getId() == ITEM_ID));
+        Assert.assertFalse(secondLevelCache.contains(Item.class, ITEM_ID));
+        long statements = statistics.getPrepareStatementCount();
+        List<Item> fromPrimary = catalogCache.findAll();
+        Assert.assertEquals(statements + 1, statistics.getPrepareStatementCount());
+
+        Assert.assertSame(fromPrimary, inReplicaScope(() -> catalogCache.findAll()));
+        Assert.assertEquals(statements + 1, statistics.getPrepareStatementCount());
+    }
+
+    private static <T> T inReplicaScope(Supplier<T> read) {
+        boolean outer = ReplicaScope.enter();
+        try {
+            return read.get();
+        } finally {
+            ReplicaScope.exit(outer);
+        }
+    }
+}
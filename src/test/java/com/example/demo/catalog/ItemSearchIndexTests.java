@@ -0,0 +1,112 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ItemSearchIndexTests {
+    private ItemRepository itemRepository = mock(ItemRepository.class);
+    private ItemSearchIndex searchIndex;
+
+    @Before
+    public void setup() {
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        createStubItem(1L, "Round Widget", "A widget that is round"),
+                        createStubItem(2L, "Square Widget", "A widget that is square"),
+                        createStubItem(3L, "Boxing Gloves", "Leather gloves for sparring")));
+        searchIndex = new ItemSearchIndex(itemRepository);
+        searchIndex.rebuild();
+    }
+
+    @Test
+    public void search_exactBeforePrefix_Test() {
+        searchIndex.index(createStubItem(4L, "Roundabout", "Playground toy"));
+
+        Assert.assertEquals(Arrays.asList(1L, 4L), ids(searchIndex.search("round", 10)));
+    }
+
+    @Test
+    public void search_prefix_Test() {
+        Assert.assertEquals(Arrays.asList(3L), ids(searchIndex.search("box", 10)));
+    }
+
+    @Test
+    public void search_substring_Test() {
+        Assert.assertEquals(Arrays.asList(3L), ids(searchIndex.search("parr", 10)));
+    }
+
+    @Test
+    public void search_typoTolerant_Test() {
+        Assert.assertEquals(Arrays.asList(3L), ids(searchIndex.search("glvoes", 10)));
+        Assert.assertEquals(Arrays.asList(2L), ids(searchIndex.search("sqaure", 10)));
+    }
+
+    @Test
+    public void search_moreMatchedTermsRankFirst_Test() {
+        List<Long> results = ids(searchIndex.search("square widget", 10));
+
+        Assert.assertEquals(Arrays.asList(2L, 1L), results);
+    }
+
+    @Test
+    public void search_nameOutranksDescription_Test() {
+        searchIndex.index(createStubItem(4L, "Sparring Pads", "Pads for boxing gloves practice"));
+
+        Assert.assertEquals(Arrays.asList(3L, 4L), ids(searchIndex.search("gloves", 10)));
+    }
+
+    @Test
+    public void index_updateAndRemove_Test() {
+        searchIndex.index(createStubItem(3L, "Boxing Helmet", "Protective headgear"));
+
+        Assert.assertTrue(searchIndex.search("gloves", 10).isEmpty());
+        Assert.assertEquals(Arrays.asList(3L), ids(searchIndex.search("helmet", 10)));
+
+        searchIndex.remove(3L);
+
+        Assert.assertTrue(searchIndex.search("helmet", 10).isEmpty());
+        Assert.assertEquals(2, searchIndex.size());
+    }
+
+    @Test
+    public void search_limit_Test() {
+        Assert.assertEquals(1, searchIndex.search("widget", 1).size());
+        Assert.assertTrue(searchIndex.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    public void withinOneEdit_Test() {
+        Assert.assertTrue(ItemSearchIndex.withinOneEdit("gloves", "gloves"));
+        Assert.assertTrue(ItemSearchIndex.withinOneEdit("gloves", "glove"));
+        Assert.assertTrue(ItemSearchIndex.withinOneEdit("gloves", "glaves"));
+        Assert.assertTrue(ItemSearchIndex.withinOneEdit("gloves", "golves"));
+        Assert.assertFalse(ItemSearchIndex.withinOneEdit("gloves", "glaver"));
+        Assert.assertFalse(ItemSearchIndex.withinOneEdit("gloves", "glo"));
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    private Item createStubItem(Long id, String name, String description) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setDescription(description);
+        item.setPrice(new BigDecimal("1.99"));
+        return item;
+    }
+}
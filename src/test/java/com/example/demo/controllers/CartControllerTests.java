@@ -1,24 +1,39 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.carts.CartStore;
+import com.example.demo.catalog.ItemCatalogCache;
+import com.example.demo.inventory.InsufficientStockException;
+import com.example.demo.inventory.InventoryService;
+import com.example.demo.metrics.ShopMetrics;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.ItemStock;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BulkModifyCartRequest;
+import com.example.demo.model.requests.CartOperation;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.Assert;
 import org.mockito.Mockito;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Optional;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CartControllerTests {
@@ -26,13 +41,19 @@ public class CartControllerTests {
     private UserRepository userRepository = mock(UserRepository.class);
     private CartRepository cartRepository = mock(CartRepository.class);
     private ItemRepository itemRepository = mock(ItemRepository.class);
+    private ItemStockRepository itemStockRepository = mock(ItemStockRepository.class);
+    private InventoryService inventoryService =
+            new InventoryService(itemStockRepository, new SimpleMeterRegistry(), 4, 60000);
 
     @Before
     public void setup() {
         cartController = new CartController();
-        TestUtils.injectObject(cartController, "itemRepository", itemRepository);
-        TestUtils.injectObject(cartController, "cartRepository", cartRepository);
+        TestUtils.injectObject(cartController, "itemCatalog", new ItemCatalogCache(itemRepository, new SimpleMeterRegistry(), 60, 100));
+        TestUtils.injectObject(cartController, "cartStore",
+                new CartStore(cartRepository, null, null, inventoryService, new SimpleMeterRegistry(), false, 100, 10000));
         TestUtils.injectObject(cartController, "userRepository", userRepository);
+        TestUtils.injectObject(cartController, "shopMetrics", new ShopMetrics(new SimpleMeterRegistry()));
+        TestUtils.injectObject(cartController, "inventoryService", inventoryService);
     }
 
     @Test
@@ -52,12 +73,13 @@ public class CartControllerTests {
         Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(foundItem);
 
         // Test
-        ResponseEntity<Cart> responseEntity = cartController.addTocart(request);
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(request);
 
         // Verify
         Assert.assertNotNull(responseEntity);
         Assert.assertEquals(200, responseEntity.getStatusCodeValue());
-        Assert.assertEquals(cart, responseEntity.getBody());
+        Assert.assertEquals(cart.getTotal(), responseEntity.getBody().getTotal());
+        Assert.assertEquals(cart.getLines().size(), responseEntity.getBody().getLines().size());
     }
 
     @Test
@@ -78,12 +100,90 @@ public class CartControllerTests {
         Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(foundItem);
 
         // Test
-        ResponseEntity<Cart> responseEntity = cartController.removeFromcart(request);
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(request);
 
         // Verify
         Assert.assertNotNull(responseEntity);
         Assert.assertEquals(200, responseEntity.getStatusCodeValue());
-        Assert.assertEquals(cart, responseEntity.getBody());
+        Assert.assertEquals(cart.getTotal(), responseEntity.getBody().getTotal());
+        Assert.assertEquals(cart.getLines().size(), responseEntity.getBody().getLines().size());
+    }
+
+    @Test
+    public void addTocart_bulkQuantity_singleLine_Test() {
+        // Stub
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setQuantity(500);
+        request.setItemId(0L);
+        request.setUsername("test-user");
+        User stubUser = createStubUser();
+        Item stubItem = createStubItem();
+        stubItem.setId(0L);
+        Cart cart = createStubCart(stubUser, stubItem);
+        stubUser.setCart(cart);
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(stubItem));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(request);
+
+        // Verify
+        Assert.assertEquals(200, responseEntity.getStatusCodeValue());
+        Assert.assertEquals(1, cart.getLines().size());
+        Assert.assertEquals(501, cart.getLine(stubItem).getQuantity());
+        Assert.assertEquals(new BigDecimal("100194.99"), cart.getTotal());
+    }
+
+    @Test
+    public void addTocart_quantityOverflow_Fail_Test() {
+        // Stub
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setQuantity(Integer.MAX_VALUE);
+        request.setItemId(0L);
+        request.setUsername("test-user");
+        User stubUser = createStubUser();
+        Item stubItem = createStubItem();
+        stubItem.setId(0L);
+        Cart cart = createStubCart(stubUser, stubItem);
+        stubUser.setCart(cart);
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(stubItem));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(request);
+
+        // Verify
+        Assert.assertEquals(400, responseEntity.getStatusCodeValue());
+        Assert.assertEquals(1, cart.getLine(stubItem).getQuantity());
+        Assert.assertEquals(new BigDecimal("199.99"), cart.getTotal());
+        verify(cartRepository, never()).save(Mockito.any(Cart.class));
+    }
+
+    @Test
+    public void removeFromCart_moreThanInCart_noDrift_Test() {
+        // Stub
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setQuantity(3);
+        request.setItemId(0L);
+        request.setUsername("test-user");
+        User stubUser = createStubUser();
+        Item stubItem = createStubItem();
+        stubItem.setId(0L);
+        Cart cart = createStubCart(stubUser, stubItem);
+        stubUser.setCart(cart);
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(stubItem));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(request);
+
+        // Verify
+        Assert.assertEquals(200, responseEntity.getStatusCodeValue());
+        Assert.assertTrue(cart.getLines().isEmpty());
+        Assert.assertEquals(0, cart.getTotal().signum());
     }
 
     @Test
@@ -99,7 +199,7 @@ public class CartControllerTests {
         Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(foundItem);
 
         // Test
-        ResponseEntity<Cart> responseEntity = cartController.removeFromcart(request);
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(request);
 
         // Verify
         Assert.assertNotNull(responseEntity);
@@ -114,11 +214,199 @@ public class CartControllerTests {
         request.setUsername("test-user");
         User user = createStubUser();
         Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(user);
-        ResponseEntity<Cart> responseEntity = cartController.removeFromcart(request);
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(request);
         Assert.assertNotNull(responseEntity);
         Assert.assertEquals(404, responseEntity.getStatusCodeValue());
     }
 
+    @Test
+    public void modifyCart_bulk_Success_Test() {
+        // Stub
+        User stubUser = createStubUser();
+        Item gloves = createStubItem();
+        gloves.setId(1L);
+        Item helmet = createStubItem();
+        helmet.setId(2L);
+        helmet.setPrice(new BigDecimal("50.00"));
+        Cart cart = createStubCart(stubUser, gloves);
+        stubUser.setCart(cart);
+        BulkModifyCartRequest request = createBulkRequest(
+                createOperation(CartOperation.Type.ADD, 2L, 3),
+                createOperation(CartOperation.Type.ADD, 1L, 2),
+                createOperation(CartOperation.Type.REMOVE, 2L, 1));
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(gloves, helmet));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.modifyCart(request);
+
+        // Verify
+        Assert.assertEquals(200, responseEntity.getStatusCodeValue());
+        Assert.assertEquals(3, cart.getLine(gloves).getQuantity());
+        Assert.assertEquals(2, cart.getLine(helmet).getQuantity());
+        Assert.assertEquals(new BigDecimal("699.97"), cart.getTotal());
+        verify(itemRepository, times(1)).findAllById(Mockito.anyIterable());
+        verify(itemRepository, never()).findById(Mockito.anyLong());
+        verify(cartRepository, times(1)).save(cart);
+    }
+
+    @Test
+    public void modifyCart_bulk_quantityOverflowAppliesNothing_Test() {
+        // Stub
+        User stubUser = createStubUser();
+        Item gloves = createStubItem();
+        gloves.setId(1L);
+        Item helmet = createStubItem();
+        helmet.setId(2L);
+        Cart cart = createStubCart(stubUser, gloves);
+        stubUser.setCart(cart);
+        BulkModifyCartRequest request = createBulkRequest(
+                createOperation(CartOperation.Type.ADD, 2L, 3),
+                createOperation(CartOperation.Type.ADD, 1L, Integer.MAX_VALUE));
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(gloves, helmet));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.modifyCart(request);
+
+        // Verify
+        Assert.assertEquals(400, responseEntity.getStatusCodeValue());
+        Assert.assertNull(cart.getLine(helmet));
+        Assert.assertEquals(1, cart.getLine(gloves).getQuantity());
+        verify(cartRepository, never()).save(Mockito.any(Cart.class));
+    }
+
+    @Test
+    public void modifyCart_bulk_unknownItem_Fail_Test() {
+        // Stub
+        User stubUser = createStubUser();
+        Item gloves = createStubItem();
+        gloves.setId(1L);
+        Cart cart = createStubCart(stubUser, gloves);
+        stubUser.setCart(cart);
+        BulkModifyCartRequest request = createBulkRequest(
+                createOperation(CartOperation.Type.ADD, 1L, 2),
+                createOperation(CartOperation.Type.ADD, 99L, 1));
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(gloves));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.modifyCart(request);
+
+        // Verify
+        Assert.assertEquals(404, responseEntity.getStatusCodeValue());
+        Assert.assertEquals(1, cart.getLine(gloves).getQuantity());
+        verify(cartRepository, never()).save(Mockito.any(Cart.class));
+    }
+
+    @Test
+    public void addTocart_outOfStock_Fail_Test() {
+        // Stub
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setQuantity(3);
+        request.setItemId(0L);
+        request.setUsername("test-user");
+        User stubUser = createStubUser();
+        Item stubItem = createStubItem();
+        stubItem.setId(0L);
+        Cart cart = createStubCart(stubUser, stubItem);
+        cart.setId(1L);
+        stubUser.setCart(cart);
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(stubItem));
+        Mockito.when(itemStockRepository.findById(0L)).thenReturn(Optional.of(new ItemStock(0L, 2)));
+
+        // Test
+        try {
+            cartController.addTocart(request);
+            Assert.fail("Expected the add to be refused");
+        } catch (InsufficientStockException e) {
+            Assert.assertEquals(Long.valueOf(0L), e.getItemId());
+        }
+
+        // Verify
+        Assert.assertEquals(1, cart.getLine(stubItem).getQuantity());
+        Assert.assertEquals(2L, inventoryService.available(0L).getAsLong());
+        verify(cartRepository, never()).save(Mockito.any(Cart.class));
+    }
+
+    @Test
+    public void addTocart_saveFails_releasesReservation_Test() {
+        // Stub
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setQuantity(2);
+        request.setItemId(0L);
+        request.setUsername("test-user");
+        User stubUser = createStubUser();
+        Item stubItem = createStubItem();
+        stubItem.setId(0L);
+        Cart cart = createStubCart(stubUser, stubItem);
+        cart.setId(1L);
+        stubUser.setCart(cart);
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(stubItem));
+        Mockito.when(itemStockRepository.findById(0L)).thenReturn(Optional.of(new ItemStock(0L, 5)));
+        Mockito.when(cartRepository.save(Mockito.any(Cart.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, 1L));
+
+        // Test
+        try {
+            cartController.addTocart(request);
+            Assert.fail("Expected the save to fail");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // expected
+        }
+
+        // Verify
+        Assert.assertEquals(5L, inventoryService.available(0L).getAsLong());
+    }
+
+    @Test
+    public void modifyCart_bulk_reservesNetChange_Test() {
+        // Stub
+        User stubUser = createStubUser();
+        Item gloves = createStubItem();
+        gloves.setId(1L);
+        Cart cart = createStubCart(stubUser, gloves);
+        cart.setId(1L);
+        stubUser.setCart(cart);
+        BulkModifyCartRequest request = createBulkRequest(
+                createOperation(CartOperation.Type.ADD, 1L, 4),
+                createOperation(CartOperation.Type.REMOVE, 1L, 10));
+
+        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(stubUser);
+        Mockito.when(itemRepository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(gloves));
+        Mockito.when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 5)));
+
+        // Test
+        ResponseEntity<CartResponse> responseEntity = cartController.modifyCart(request);
+
+        // Verify
+        Assert.assertEquals(200, responseEntity.getStatusCodeValue());
+        Assert.assertTrue(cart.getLines().isEmpty());
+        Assert.assertEquals(5L, inventoryService.available(1L).getAsLong());
+    }
+
+    private BulkModifyCartRequest createBulkRequest(CartOperation... operations) {
+        BulkModifyCartRequest request = new BulkModifyCartRequest();
+        request.setUsername("test-user");
+        request.setOperations(Arrays.asList(operations));
+        return request;
+    }
+
+    private CartOperation createOperation(CartOperation.Type type, long itemId, int quantity) {
+        CartOperation operation = new CartOperation();
+        operation.setType(type);
+        operation.setItemId(itemId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
     private User createStubUser() {
         User testUser = new User();
         testUser.setUsername("test-user");
@@ -138,10 +426,8 @@ public class CartControllerTests {
 
     private Cart createStubCart(User user, Item item) {
         Cart cart = new Cart();
-        BigDecimal total = new BigDecimal("199.99");
-        cart.setTotal(total);
         cart.setUser(user);
-        cart.setItems(Arrays.asList(item));
+        cart.addItem(item);
         return cart;
     }
 
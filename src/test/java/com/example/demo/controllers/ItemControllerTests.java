@@ -1,20 +1,32 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.catalog.ItemCatalogCache;
+import com.example.demo.catalog.ItemCatalogExporter;
+import com.example.demo.catalog.ItemSearchIndex;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import javax.persistence.EntityManager;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ItemControllerTests {
@@ -24,7 +36,11 @@ public class ItemControllerTests {
     @Before
     public void setup() {
         itemController = new ItemController();
+        TestUtils.injectObject(itemController, "itemCatalog", new ItemCatalogCache(itemRepository, new SimpleMeterRegistry(), 60, 100));
         TestUtils.injectObject(itemController, "itemRepository", itemRepository);
+        TestUtils.injectObject(itemController, "catalogExporter",
+                new ItemCatalogExporter(itemRepository, mock(EntityManager.class), new ObjectMapper()));
+        TestUtils.injectObject(itemController, "searchIndex", new ItemSearchIndex(itemRepository));
     }
 
     @Test
@@ -83,6 +99,107 @@ public class ItemControllerTests {
         Assert.assertNotNull(response);
     }
 
+    @Test
+    public void getItemById_servedFromCache_Test() {
+        // Stub
+        Item item = createStubItem();
+        item.setId(0L);
+        when(itemRepository.findById(0L)).thenReturn(java.util.Optional.of(item));
+
+        // Test
+        itemController.getItemById(0L);
+        ResponseEntity<Item> response = itemController.getItemById(0L);
+
+        // Verification
+        Assert.assertEquals(200, response.getStatusCodeValue());
+        Assert.assertEquals(item, response.getBody());
+        verify(itemRepository, times(1)).findById(0L);
+    }
+
+    @Test
+    public void getItemPage_hasMore_Test() {
+        // Stub
+        Item firstItem = createStubItem();
+        firstItem.setId(11L);
+        Item secondItem = createStubItem();
+        secondItem.setId(12L);
+        Item thirdItem = createStubItem();
+        thirdItem.setId(13L);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(10L), Mockito.any(Pageable.class)))
+                .thenReturn(new ArrayList<>(Arrays.asList(firstItem, secondItem, thirdItem)));
+
+        // Test
+        ResponseEntity<ItemPage> response = itemController.getItemPage(10L, 2);
+
+        // Verification
+        Assert.assertEquals(200, response.getStatusCodeValue());
+        Assert.assertEquals(Arrays.asList(firstItem, secondItem), response.getBody().getItems());
+        Assert.assertEquals(Long.valueOf(12L), response.getBody().getNextCursor());
+    }
+
+    @Test
+    public void getItemPage_lastPage_Test() {
+        // Stub
+        Item item = createStubItem();
+        item.setId(1L);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(new ArrayList<>(Arrays.asList(item)));
+
+        // Test
+        ResponseEntity<ItemPage> response = itemController.getItemPage(null, 50);
+
+        // Verification
+        Assert.assertEquals(Arrays.asList(item), response.getBody().getItems());
+        Assert.assertNull(response.getBody().getNextCursor());
+    }
+
+    @Test
+    public void streamItems_writesNdjson_Test() throws Exception {
+        // Stub
+        Item firstItem = createStubItem();
+        firstItem.setId(0L);
+        Item secondItem = createStubItem();
+        secondItem.setId(1L);
+        when(itemRepository.streamAllOrderById()).thenReturn(Stream.of(firstItem, secondItem));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        // Test
+        itemController.streamItems(servletResponse);
+
+        // Verification
+        String[] lines = servletResponse.getContentAsString().split("\n");
+        Assert.assertEquals(ItemCatalogExporter.NDJSON, servletResponse.getContentType());
+        Assert.assertEquals(2, lines.length);
+        Assert.assertTrue(lines[0].startsWith("{\"id\":0,"));
+        Assert.assertTrue(lines[1].startsWith("{\"id\":1,"));
+    }
+
+    @Test
+    public void searchItems_Success_Test() {
+        // Stub
+        Item item = createStubItem();
+        item.setId(0L);
+        ItemSearchIndex searchIndex = new ItemSearchIndex(itemRepository);
+        searchIndex.index(item);
+        TestUtils.injectObject(itemController, "searchIndex", searchIndex);
+
+        // Test
+        ResponseEntity<List<Item>> response = itemController.searchItems("box", 20);
+
+        // Verification
+        Assert.assertEquals(200, response.getStatusCodeValue());
+        Assert.assertEquals(Arrays.asList(item), response.getBody());
+    }
+
+    @Test
+    public void searchItems_blankQuery_Fail_Test() {
+        // Test
+        ResponseEntity<List<Item>> response = itemController.searchItems("  ", 20);
+
+        // Verification
+        Assert.assertEquals(400, response.getStatusCodeValue());
+    }
+
     private Item createStubItem() {
         Item item = new Item();
         BigDecimal total = new BigDecimal("199.99");
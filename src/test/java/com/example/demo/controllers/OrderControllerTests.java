@@ -1,36 +1,57 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.carts.CartStore;
+import com.example.demo.inventory.InventoryService;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.orders.OrderPipeline;
+import com.example.demo.orders.OrderSubmissionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OrderControllerTests {
     private OrderController orderController;
     private UserRepository userRepository = mock(UserRepository.class);
     private OrderRepository orderRepository = mock(OrderRepository.class);
+    private CartRepository cartRepository = mock(CartRepository.class);
+    private OrderPipeline orderPipeline = mock(OrderPipeline.class);
+    private InventoryService inventoryService = mock(InventoryService.class);
 
     @Before
     public void setup() {
         orderController = new OrderController();
         TestUtils.injectObject(orderController, "userRepository", userRepository);
         TestUtils.injectObject(orderController, "orderRepository", orderRepository);
+        TestUtils.injectObject(orderController, "cartStore",
+                new CartStore(cartRepository, null, null, inventoryService, new SimpleMeterRegistry(), false, 100, 10000));
+        TestUtils.injectObject(orderController, "orderSubmissionService",
+                new OrderSubmissionService(orderRepository, cartRepository, orderPipeline, inventoryService));
     }
 
     @Test
@@ -45,13 +66,80 @@ public class OrderControllerTests {
         when(userRepository.findByUsername(Mockito.anyString())).thenReturn(testUser);
 
         // Test
-        ResponseEntity<UserOrder> response = orderController.submit("test-user");
+        ResponseEntity<OrderResponse> response = orderController.submit("test-user", null);
 
         // Verify
         Assert.assertNotNull(response);
+        Assert.assertEquals(202, response.getStatusCodeValue());
+        Assert.assertEquals(UserOrder.Status.PENDING, response.getBody().getStatus());
+        Assert.assertEquals(new BigDecimal("199.99"), response.getBody().getTotal());
+        Assert.assertEquals(1, response.getBody().getLines().size());
+        Assert.assertEquals(1, response.getBody().getLines().get(0).getQuantity());
+        Assert.assertTrue(cart.isEmpty());
+        Assert.assertEquals(0, cart.getTotal().signum());
+        ArgumentCaptor<UserOrder> saved = ArgumentCaptor.forClass(UserOrder.class);
+        verify(orderRepository).save(saved.capture());
+        Assert.assertEquals(testUser, saved.getValue().getUser());
+        verify(orderPipeline).accept(saved.getValue());
+        verify(cartRepository).save(cart);
+    }
+
+    @Test
+    public void testSubmit_repeatedIdempotencyKey_Test() {
+        User testUser = createStubUser();
+        testUser.setCart(createStubCart(testUser, createStubItem()));
+        UserOrder existing = createStubOrder(testUser, 7L, Instant.parse("2019-01-20T10:00:00Z"));
+        existing.confirmed();
+
+        // Stub
+        when(userRepository.findByUsername(Mockito.anyString())).thenReturn(testUser);
+        when(orderRepository.findByUserAndIdempotencyKey(testUser, "retry-1")).thenReturn(existing);
+
+        // Test
+        ResponseEntity<OrderResponse> response = orderController.submit("test-user", "retry-1");
+
+        // Verify
         Assert.assertEquals(200, response.getStatusCodeValue());
-        Assert.assertEquals(testUser, response.getBody().getUser());
-        Assert.assertEquals(cart, response.getBody().getUser().getCart());
+        Assert.assertEquals("/api/order/status/test-user/7", response.getHeaders().getLocation().toString());
+        Assert.assertEquals(existing.getId(), response.getBody().getId());
+        Assert.assertFalse(testUser.getCart().isEmpty());
+        verify(orderRepository, never()).save(Mockito.any(UserOrder.class));
+    }
+
+    @Test
+    public void testSubmit_usernameNeedsEscaping_Test() {
+        User testUser = createStubUser();
+        testUser.setUsername("jane doe ä");
+        testUser.setCart(createStubCart(testUser, createStubItem()));
+        UserOrder existing = createStubOrder(testUser, 7L, Instant.parse("2019-01-20T10:00:00Z"));
+
+        // Stub
+        when(userRepository.findByUsername(Mockito.anyString())).thenReturn(testUser);
+        when(orderRepository.findByUserAndIdempotencyKey(testUser, "retry-1")).thenReturn(existing);
+
+        // Test
+        ResponseEntity<OrderResponse> response = orderController.submit("jane doe ä", "retry-1");
+
+        // Verify
+        Assert.assertEquals(202, response.getStatusCodeValue());
+        Assert.assertEquals("/api/order/status/jane%20doe%20%C3%A4/7",
+                response.getHeaders().getLocation().toASCIIString());
+    }
+
+    @Test
+    public void testSubmit_emptyCart_Fail_Test() {
+        User testUser = createStubUser();
+        testUser.setCart(new Cart());
+
+        // Stub
+        when(userRepository.findByUsername(Mockito.anyString())).thenReturn(testUser);
+
+        // Test
+        ResponseEntity<OrderResponse> response = orderController.submit("test-user", null);
+
+        // Verify
+        Assert.assertEquals(400, response.getStatusCodeValue());
+        verify(orderRepository, never()).save(Mockito.any(UserOrder.class));
     }
 
     private User createStubUser() {
@@ -73,10 +161,8 @@ public class OrderControllerTests {
 
     private Cart createStubCart(User user, Item item) {
         Cart cart = new Cart();
-        BigDecimal total = new BigDecimal("199.99");
-        cart.setTotal(total);
         cart.setUser(user);
-        cart.setItems(Arrays.asList(item));
+        cart.addItem(item);
         return cart;
     }
 
@@ -86,7 +172,7 @@ public class OrderControllerTests {
         when(userRepository.findByUsername(Mockito.anyString())).thenReturn(null);
 
         // Test
-        ResponseEntity<UserOrder> response = orderController.submit("test-user");
+        ResponseEntity<OrderResponse> response = orderController.submit("test-user", null);
 
         // Verify
         Assert.assertNotNull(response);
@@ -99,25 +185,27 @@ public class OrderControllerTests {
         // Stub
         User testUser = createStubUser();
         Item item = createStubItem();
-        Cart cart = createStubCart(testUser, item);
-
-        testUser.setCart(cart);
-
-        UserOrder userOrder = new UserOrder();
-        userOrder.setUser(testUser);
-        userOrder.setItems(testUser.getCart().getItems());
-        userOrder.setTotal(testUser.getCart().getTotal());
+        item.setId(3L);
+        Instant createdAt = Instant.parse("2019-01-20T10:00:00Z");
 
         when(userRepository.findByUsername(Mockito.anyString())).thenReturn(testUser);
-        when(orderRepository.findByUser(Mockito.any(User.class))).thenReturn(Arrays.asList(userOrder));
+        when(orderRepository.findLinesByUser(Mockito.any(User.class))).thenReturn(Arrays.asList(
+                new StubOrderLine(5L, createdAt, new BigDecimal("399.98"), item, 2),
+                new StubOrderLine(6L, createdAt, BigDecimal.ZERO, null, null)));
 
         // Test
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser(testUser.getUsername());
+        ResponseEntity<List<OrderResponse>> response = orderController.getOrdersForUser(testUser.getUsername());
 
         // Verify
         Assert.assertNotNull(response);
         Assert.assertEquals(200, response.getStatusCodeValue());
-        Assert.assertEquals(Arrays.asList(userOrder), response.getBody());
+        Assert.assertEquals(2, response.getBody().size());
+        OrderResponse order = response.getBody().get(0);
+        Assert.assertEquals(Long.valueOf(5L), order.getId());
+        Assert.assertEquals(1, order.getLines().size());
+        Assert.assertEquals(Long.valueOf(3L), order.getLines().get(0).getItemId());
+        Assert.assertEquals(2, order.getLines().get(0).getQuantity());
+        Assert.assertTrue(response.getBody().get(1).getLines().isEmpty());
     }
 
     @Test
@@ -126,7 +214,7 @@ public class OrderControllerTests {
         when(userRepository.findByUsername(Mockito.anyString())).thenReturn(null);
 
         // Test
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("test-user");
+        ResponseEntity<List<OrderResponse>> response = orderController.getOrdersForUser("test-user");
 
         // Verify
         Assert.assertNotNull(response);
@@ -134,4 +222,118 @@ public class OrderControllerTests {
         Assert.assertEquals(null, response.getBody());
     }
 
+    @Test
+    public void getOrderHistoryPage_hasMore_Test() {
+        // Stub
+        User testUser = createStubUser();
+        Instant from = Instant.parse("2019-01-01T00:00:00Z");
+        Instant to = Instant.parse("2019-02-01T00:00:00Z");
+        Item item = createStubItem();
+        item.setId(3L);
+        Instant olderCreatedAt = Instant.parse("2019-01-10T10:00:00Z");
+
+        when(userRepository.findByUsername(Mockito.anyString())).thenReturn(testUser);
+        when(orderRepository.findHistoryIds(Mockito.eq(testUser), Mockito.eq(from), Mockito.eq(to),
+                Mockito.eq(Instant.ofEpochMilli(1548000000000L)), Mockito.eq(13L), Mockito.any(Pageable.class)))
+                .thenReturn(new ArrayList<>(Arrays.asList(12L, 11L, 10L)));
+        when(orderRepository.findLinesByIdIn(Arrays.asList(12L, 11L))).thenReturn(Arrays.asList(
+                new StubOrderLine(12L, Instant.parse("2019-01-20T10:00:00Z"), new BigDecimal("199.99"), item, 1),
+                new StubOrderLine(11L, olderCreatedAt, new BigDecimal("199.99"), item, 1)));
+
+        // Test
+        ResponseEntity<OrderHistoryPage> response =
+                orderController.getOrderHistoryPage("test-user", from, to, "1548000000000_13", 2);
+
+        // Verify
+        Assert.assertEquals(200, response.getStatusCodeValue());
+        Assert.assertEquals(2, response.getBody().getOrders().size());
+        Assert.assertEquals(Long.valueOf(12L), response.getBody().getOrders().get(0).getId());
+        Assert.assertEquals(olderCreatedAt.toEpochMilli() + "_11", response.getBody().getNextCursor());
+    }
+
+    @Test
+    public void getOrderHistoryPage_invalidCursor_Fail_Test() {
+        // Stub
+        when(userRepository.findByUsername(Mockito.anyString())).thenReturn(createStubUser());
+
+        // Test
+        ResponseEntity<OrderHistoryPage> response =
+                orderController.getOrderHistoryPage("test-user", null, null, "not-a-cursor", 10);
+
+        // Verify
+        Assert.assertEquals(400, response.getStatusCodeValue());
+        verify(orderRepository, never()).findLinesByIdIn(Mockito.anyCollection());
+    }
+
+    private UserOrder createStubOrder(User user, Long id, Instant createdAt) {
+        UserOrder order = new UserOrder();
+        order.setId(id);
+        order.setUser(user);
+        Item item = createStubItem();
+        order.addLine(item, 1, Money.toCents(item.getPrice()));
+        order.setTotal(new BigDecimal("199.99"));
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+
+    private static final class StubOrderLine implements OrderRepository.OrderLine {
+        private final Long orderId;
+        private final Instant createdAt;
+        private final BigDecimal total;
+        private final Item item;
+        private final Integer quantity;
+
+        private StubOrderLine(Long orderId, Instant createdAt, BigDecimal total, Item item, Integer quantity) {
+            this.orderId = orderId;
+            this.createdAt = createdAt;
+            this.total = total;
+            this.item = item;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        @Override
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public BigDecimal getTotal() {
+            return total;
+        }
+
+        @Override
+        public UserOrder.Status getStatus() {
+            return UserOrder.Status.CONFIRMED;
+        }
+
+        @Override
+        public Long getItemId() {
+            return item == null ? null : item.getId();
+        }
+
+        @Override
+        public String getSku() {
+            return item == null ? null : item.getSku();
+        }
+
+        @Override
+        public String getName() {
+            return item == null ? null : item.getName();
+        }
+
+        @Override
+        public Long getUnitPriceCents() {
+            return item == null ? null : Money.toCents(item.getPrice());
+        }
+
+        @Override
+        public Integer getQuantity() {
+            return quantity;
+        }
+    }
 }
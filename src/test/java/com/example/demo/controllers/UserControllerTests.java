@@ -2,31 +2,37 @@ package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.security.PasswordHashingService;
+import com.example.demo.security.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserControllerTests {
     private UserController userController;
     private UserRepository userRepository = mock(UserRepository.class);
-    private CartRepository cartRepository = mock(CartRepository.class);
     private BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+    private UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
 
     @Before
     public void setup() {
         userController = new UserController();
         TestUtils.injectObject(userController, "userRepository", userRepository);
-        TestUtils.injectObject(userController, "cartRepository", cartRepository);
-        TestUtils.injectObject(userController, "bCryptPasswordEncoder", encoder);
+        TestUtils.injectObject(userController, "passwordHashingService",
+                new PasswordHashingService(encoder, new SimpleMeterRegistry(), 1, 10, 1000));
+        TestUtils.injectObject(userController, "userDetailsService", userDetailsService);
     }
 
     @Test
@@ -45,14 +51,17 @@ public class UserControllerTests {
         when(encoder.encode(password)).thenReturn(hashedPassword);
 
         // Test
-        ResponseEntity<User> response =  userController.createUser(request);
+        ResponseEntity<UserResponse> response =  userController.createUser(request).join();
 
         // Verify
         Assert.assertNotNull(response);
         Assert.assertEquals(200, response.getStatusCode().value());
         Assert.assertEquals(0, response.getBody().getId());
         Assert.assertEquals(username, response.getBody().getUsername());
-        Assert.assertEquals(hashedPassword, response.getBody().getPassword());
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(saved.capture());
+        Assert.assertEquals(hashedPassword, saved.getValue().getPassword());
+        verify(userDetailsService).evict(username);
     }
 
     @Test
@@ -71,7 +80,7 @@ public class UserControllerTests {
         when(encoder.encode(password)).thenReturn(hashedPassword);
 
         // Test
-        ResponseEntity<User> response =  userController.createUser(request);;
+        ResponseEntity<UserResponse> response =  userController.createUser(request).join();
 
         // Verify
         Assert.assertNotNull(response);
@@ -96,7 +105,7 @@ public class UserControllerTests {
         when(encoder.encode(password)).thenReturn(hashedPassword);
 
         // Test
-        ResponseEntity<User> response =  userController.createUser(request);;
+        ResponseEntity<UserResponse> response =  userController.createUser(request).join();
 
         // Verify
         Assert.assertNotNull(response);
@@ -107,11 +116,11 @@ public class UserControllerTests {
     @Test
     public void findByUserName_Success_Test() {
         // Stub
-        User user = createStubUser();
-        Mockito.when(userRepository.findByUsername(Mockito.anyString())).thenReturn(user);
+        UserResponse user = UserResponse.from(createStubUser());
+        Mockito.when(userRepository.findResponseByUsername(Mockito.anyString())).thenReturn(user);
 
         // Test
-        ResponseEntity<User> response = userController.findByUserName("test-user");
+        ResponseEntity<UserResponse> response = userController.findByUserName("test-user");
 
         // Verify
         Assert.assertNotNull(response);
@@ -0,0 +1,52 @@
+package com.example.demo.datasource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataSourceWarmupTests {
+    private DataSource dataSource = mock(DataSource.class);
+    private Connection connection = mock(Connection.class);
+
+    @Test
+    public void warmUp_holdsAllConnectionsBeforeReturningThem_Test() throws SQLException {
+        // Stub
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.isValid(Mockito.anyInt())).thenReturn(true);
+        Mockito.doAnswer(invocation -> {
+            verify(dataSource, times(3)).getConnection();
+            return null;
+        }).when(connection).close();
+
+        // Test
+        int warmed = new DataSourceWarmup(Collections.singletonList(dataSource), true, 3).warmUp();
+
+        // Verify
+        Assert.assertEquals(3, warmed);
+        verify(connection, times(3)).close();
+    }
+
+    @Test
+    public void warmUp_failureDoesNotPreventStartup_Test() throws SQLException {
+        // Stub
+        when(dataSource.getConnection()).thenReturn(connection).thenThrow(new SQLException("refused"));
+        when(connection.isValid(Mockito.anyInt())).thenReturn(true);
+
+        // Test
+        int warmed = new DataSourceWarmup(Collections.singletonList(dataSource), true, 3).warmUp();
+
+        // Verify
+        Assert.assertEquals(1, warmed);
+        verify(connection).close();
+    }
+}
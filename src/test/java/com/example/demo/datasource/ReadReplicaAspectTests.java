@@ -0,0 +1,68 @@
+package com.example.demo.datasource;
+
+import com.example.demo.catalog.ItemCatalogCache;
+import com.example.demo.controllers.ItemController;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReadReplicaAspectTests {
+    @Autowired
+    private ItemController itemController;
+
+    @Autowired
+    private ItemCatalogCache itemCatalog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void setup() {
+        itemCatalog.invalidateAll();
+    }
+
+    @Test
+    public void getItems_withoutReplicaRepeatIsCacheHit_Test() {
+        // Test
+        double misses = allItemsGets("miss");
+        double hits = allItemsGets("hit");
+        itemController.getItems();
+        itemController.getItems();
+
+        // Verify
+        Assert.assertEquals(misses + 1.0, allItemsGets("miss"), 0.0);
+        Assert.assertEquals(hits + 1.0, allItemsGets("hit"), 0.0);
+    }
+
+    @Test
+    public void readFromReplica_withReplicaOpensScope_Test() throws Throwable {
+        // Stub
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.proceed()).thenAnswer(invocation -> ReplicaScope.isActive());
+
+        // Test
+        Object enabled = new ReadReplicaAspect(true).readFromReplica(joinPoint);
+        Object disabled = new ReadReplicaAspect(false).readFromReplica(joinPoint);
+
+        // Verify
+        Assert.assertEquals(Boolean.TRUE, enabled);
+        Assert.assertEquals(Boolean.FALSE, disabled);
+        Assert.assertFalse(ReplicaScope.isActive());
+    }
+
+    private double allItemsGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "catalog.items.all").tag("result", result)
+                .functionCounter().count();
+    }
+}
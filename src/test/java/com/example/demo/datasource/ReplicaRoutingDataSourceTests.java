@@ -0,0 +1,110 @@
+package com.example.demo.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+public class ReplicaRoutingDataSourceTests {
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DataSource replica;
+    private JdbcTemplate replicaTemplate;
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @Before
+    public void setup() {
+        DataSource primary = createDatabase("primary");
+        replica = Mockito.spy(createDatabase("replica"));
+        replicaTemplate = new JdbcTemplate(replica);
+        replicaTemplate.execute("create table if not exists replica_lag (seconds int)");
+        replicaTemplate.execute("delete from replica_lag");
+        replicaTemplate.execute("insert into replica_lag values (0)");
+        lagMonitor = new ReplicaLagMonitor(replica, meterRegistry, "select seconds from replica_lag", 5000);
+
+        DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, lagMonitor, meterRegistry));
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void onlyReadsInsideReplicaScopeGoToReplica_Test() {
+        Assert.assertEquals("primary", readOnly.execute(status -> database()));
+
+        boolean outer = ReplicaScope.enter();
+        try {
+            Assert.assertEquals("replica", readOnly.execute(status -> database()));
+            Assert.assertEquals("replica", database());
+            Assert.assertEquals("primary", readWrite.execute(status -> database()));
+        } finally {
+            ReplicaScope.exit(outer);
+        }
+
+        Assert.assertFalse(ReplicaScope.isActive());
+        Assert.assertEquals(2.0, meterRegistry.get("datasource.routing.connections").tag("target", "replica")
+                .counter().count(), 0.0);
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary_Test() {
+        replicaTemplate.update("update replica_lag set seconds = 60");
+        lagMonitor.check();
+
+        Assert.assertFalse(lagMonitor.isUsable());
+        Assert.assertEquals("primary", inReplicaScope());
+        Assert.assertEquals(60.0, meterRegistry.get("datasource.replica.lag").gauge().value(), 0.0);
+
+        replicaTemplate.update("update replica_lag set seconds = 1");
+        lagMonitor.check();
+
+        Assert.assertEquals("replica", inReplicaScope());
+    }
+
+    @Test
+    public void unreachableReplicaFallsBackToPrimary_Test() throws SQLException {
+        Mockito.doThrow(new SQLException("connection refused")).when(replica).getConnection();
+
+        Assert.assertEquals("primary", inReplicaScope());
+        Assert.assertFalse(lagMonitor.isUsable());
+        Assert.assertEquals(1.0, meterRegistry.get("datasource.replica.fallbacks").tag("reason", "error")
+                .counter().count(), 0.0);
+    }
+
+    private String inReplicaScope() {
+        boolean outer = ReplicaScope.enter();
+        try {
+            return readOnly.execute(status -> database());
+        } finally {
+            ReplicaScope.exit(outer);
+        }
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource createDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists node (name varchar(16))");
+        template.execute("delete from node");
+        template.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
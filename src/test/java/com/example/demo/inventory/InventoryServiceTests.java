@@ -0,0 +1,220 @@
+package com.example.demo.inventory;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.ItemStock;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemStockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InventoryServiceTests {
+    private ItemStockRepository itemStockRepository = mock(ItemStockRepository.class);
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InventoryService inventoryService = new InventoryService(itemStockRepository, meterRegistry, 8, 60000);
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void reserveForCart_flashSaleNeverReservesMoreThanStock_Test() throws Exception {
+        // Stub
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 100)));
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Test
+        try {
+            for (long cartId = 1; cartId <= 400; cartId++) {
+                long id = cartId;
+                int units = (int) (cartId % 3) + 1;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        inventoryService.reserveForCart(id, Collections.singletonMap(1L, units));
+                        return units;
+                    } catch (InsufficientStockException e) {
+                        return 0;
+                    }
+                }));
+            }
+            start.countDown();
+            int reserved = 0;
+            for (Future<Integer> result : results) {
+                reserved += result.get();
+            }
+
+            // Verify
+            Assert.assertTrue(reserved <= 100);
+            Assert.assertEquals(100 - reserved, inventoryService.available(1L).getAsLong());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void reserveForCart_removeReleasesOnlyWhatWasReserved_Test() {
+        // Stub
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 10)));
+        when(itemStockRepository.findById(2L)).thenReturn(Optional.empty());
+
+        // Test
+        inventoryService.reserveForCart(7L, Collections.singletonMap(1L, 4));
+        inventoryService.reserveForCart(7L, Collections.singletonMap(1L, -6));
+        inventoryService.reserveForCart(7L, Collections.singletonMap(2L, 1000));
+
+        // Verify
+        Assert.assertEquals(10L, inventoryService.available(1L).getAsLong());
+        Assert.assertFalse(inventoryService.available(2L).isPresent());
+        Assert.assertEquals(0.0, meterRegistry.get("inventory.reservations.active").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void expireReservations_releasesUnusedReservations_Test() throws Exception {
+        // Stub
+        InventoryService shortLived = new InventoryService(itemStockRepository, meterRegistry, 8, 0);
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 5)));
+        shortLived.reserveForCart(7L, Collections.singletonMap(1L, 5));
+        Thread.sleep(2);
+
+        // Test
+        int expired = shortLived.expireReservations();
+
+        // Verify
+        Assert.assertEquals(1, expired);
+        Assert.assertEquals(5L, shortLived.available(1L).getAsLong());
+    }
+
+    @Test
+    public void refreshCounters_keepsReservedUnitsOutUntilReleased_Test() {
+        // Stub
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 10)));
+        when(itemStockRepository.findAllById(Mockito.anyIterable()))
+                .thenReturn(Collections.singletonList(new ItemStock(1L, 10)));
+        inventoryService.reserveForCart(7L, Collections.singletonMap(1L, 4));
+
+        // Test
+        inventoryService.refreshCounters();
+
+        // Verify
+        Assert.assertEquals(6L, inventoryService.available(1L).getAsLong());
+        inventoryService.releaseCart(7L);
+        inventoryService.refreshCounters();
+        Assert.assertEquals(10L, inventoryService.available(1L).getAsLong());
+    }
+
+    @Test
+    public void takeStock_dropsReservationOnCommit_Test() {
+        // Stub
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 5)));
+        when(itemStockRepository.findTrackedItemIds(Mockito.anyCollection())).thenReturn(Arrays.asList(1L));
+        when(itemStockRepository.take(1L, 2L)).thenReturn(1);
+        inventoryService.reserveForCart(7L, Collections.singletonMap(1L, 2));
+        UserOrder order = createOrder();
+        order.addLine(createItem(1L), 2, 100);
+        inventoryService.holdForOrder(7L, order);
+
+        // Test
+        TransactionSynchronizationManager.initSynchronization();
+        inventoryService.takeStock(order);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Verify
+        Assert.assertEquals(3L, inventoryService.available(1L).getAsLong());
+        Assert.assertEquals(0.0, meterRegistry.get("inventory.reservations.active").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void takeStock_shortfallReleasesReservation_Test() {
+        // Stub
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 5)));
+        when(itemStockRepository.findTrackedItemIds(Mockito.anyCollection())).thenReturn(Arrays.asList(1L));
+        when(itemStockRepository.take(1L, 2L)).thenReturn(0);
+        inventoryService.reserveForCart(7L, Collections.singletonMap(1L, 2));
+        UserOrder order = createOrder();
+        order.addLine(createItem(1L), 2, 100);
+        order.addLine(createItem(2L), 1, 100);
+        inventoryService.holdForOrder(7L, order);
+
+        // Test
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inventoryService.takeStock(order);
+            Assert.fail("Expected a shortfall");
+        } catch (InsufficientStockException e) {
+            Assert.assertEquals(Long.valueOf(1L), e.getItemId());
+        }
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Verify
+        Assert.assertEquals(5L, inventoryService.available(1L).getAsLong());
+        Assert.assertEquals(1.0, meterRegistry.get("inventory.stock.shortfalls").counter().count(), 0.0);
+    }
+
+    @Test
+    public void takeStock_checksStoredStockOfLocallyUntrackedItem_Test() {
+        // Stub
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.empty());
+        Assert.assertFalse(inventoryService.available(1L).isPresent());
+        when(itemStockRepository.findTrackedItemIds(Mockito.anyCollection())).thenReturn(Arrays.asList(1L));
+        when(itemStockRepository.take(1L, 2L)).thenReturn(0);
+        UserOrder order = createOrder();
+        order.addLine(createItem(1L), 2, 100);
+
+        // Test
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inventoryService.takeStock(order);
+            Assert.fail("Expected a shortfall");
+        } catch (InsufficientStockException e) {
+            Assert.assertEquals(Long.valueOf(1L), e.getItemId());
+        }
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Verify
+        verify(itemStockRepository).take(1L, 2L);
+        when(itemStockRepository.findById(1L)).thenReturn(Optional.of(new ItemStock(1L, 1)));
+        Assert.assertEquals(1L, inventoryService.available(1L).getAsLong());
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static UserOrder createOrder() {
+        UserOrder order = new UserOrder();
+        order.setId(1L);
+        return order;
+    }
+
+    private static Item createItem(Long id) {
+        Item item = new Item();
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-endpoint latency histograms and error counts collected by a load test.
+ * Latencies are recorded in microseconds with three significant digits.
+ */
+public class LatencyReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    public void record(String endpoint, long elapsedNanos, boolean success) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    public long totalRequests() {
+        long total = 0;
+        for (Endpoint stats : endpoints.values()) {
+            total += stats.latency.getTotalCount();
+        }
+        return total;
+    }
+
+    public long totalErrors() {
+        long total = 0;
+        for (Endpoint stats : endpoints.values()) {
+            total += stats.errors.get();
+        }
+        return total;
+    }
+
+    /**
+     * Highest p99 across all endpoints, in milliseconds.
+     */
+    public double worstP99Millis() {
+        double worst = 0;
+        for (Endpoint stats : endpoints.values()) {
+            worst = Math.max(worst, millis(stats.latency, 99.0));
+        }
+        return worst;
+    }
+
+    public String format(long elapsedMillis) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-40s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Histogram latency = entry.getValue().latency;
+            out.append(String.format("%-40s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(),
+                    latency.getTotalCount(),
+                    entry.getValue().errors.get(),
+                    latency.getTotalCount() * 1000.0 / Math.max(1, elapsedMillis),
+                    millis(latency, 50.0),
+                    millis(latency, 99.0),
+                    millis(latency, 99.9),
+                    latency.getMaxValue() / 1000.0));
+        }
+        return out.toString();
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static final class Endpoint {
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.controllers.OrderController;
+import com.example.demo.security.SecurityConstants;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the whole shopping flow over HTTP against the application booted on
+ * a random port with its in-memory H2 database. Each virtual user signs up,
+ * logs in and then loops over browsing, adding to the cart, submitting and
+ * reading order history until the run ends, pausing for a random think time
+ * between steps.
+ * <p>
+ * Not part of the regular test run; start it with
+ * {@code mvn -Ploadtest test -Dloadtest.users=50 -Dloadtest.duration-seconds=60}.
+ * The run fails if the error rate or, when configured, any endpoint's p99
+ * exceeds its threshold, so it can gate a release.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+public class OrderFlowSimulation {
+    private static final Logger logger = LoggerFactory.getLogger(OrderFlowSimulation.class);
+
+    private static final String PASSWORD = "loadtest-password";
+
+    private static final long[] ITEM_IDS = {1L, 2L};
+
+    private static final String[] SEARCH_TERMS = {"widget", "round", "sqare", "wid"};
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${loadtest.users:20}")
+    private int users;
+
+    @Value("${loadtest.duration-seconds:30}")
+    private int durationSeconds;
+
+    @Value("${loadtest.ramp-up-seconds:5}")
+    private int rampUpSeconds;
+
+    @Value("${loadtest.think-time-ms:100}")
+    private long thinkTimeMillis;
+
+    @Value("${loadtest.max-error-rate:0.01}")
+    private double maxErrorRate;
+
+    @Value("${loadtest.max-p99-ms:0}")
+    private double maxP99Millis;
+
+    @Value("${loadtest.report:target/loadtest-report.txt}")
+    private String reportPath;
+
+    private final LatencyReport report = new LatencyReport();
+
+    private final RestTemplate restTemplate = createRestTemplate();
+
+    @Test
+    public void orderFlow() throws Exception {
+        long start = System.currentTimeMillis();
+        long deadline = start + TimeUnit.SECONDS.toMillis(durationSeconds);
+        ExecutorService virtualUsers = Executors.newFixedThreadPool(users);
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            long startDelay = users > 1 ? TimeUnit.SECONDS.toMillis(rampUpSeconds) * i / (users - 1) : 0;
+            String username = "loadtest-" + i + "-" + UUID.randomUUID().toString().substring(0, 8);
+            running.add(virtualUsers.submit(() -> runVirtualUser(username, start + startDelay, deadline)));
+        }
+        for (Future<?> user : running) {
+            user.get();
+        }
+        virtualUsers.shutdown();
+        long elapsed = System.currentTimeMillis() - start;
+
+        String summary = String.format("%d virtual users, %d s, think time %d ms: %d requests, %d errors%n%s",
+                users, durationSeconds, thinkTimeMillis, report.totalRequests(), report.totalErrors(),
+                report.format(elapsed));
+        logger.warn("Load test finished\n" + summary);
+        Path path = Paths.get(reportPath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, summary.getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertTrue("no requests were made", report.totalRequests() > 0);
+        double errorRate = (double) report.totalErrors() / report.totalRequests();
+        Assert.assertTrue("error rate " + errorRate + " exceeds " + maxErrorRate, errorRate <= maxErrorRate);
+        if (maxP99Millis > 0) {
+            Assert.assertTrue("p99 of " + report.worstP99Millis() + " ms exceeds " + maxP99Millis + " ms",
+                    report.worstP99Millis() <= maxP99Millis);
+        }
+    }
+
+    private void runVirtualUser(String username, long startAt, long deadline) {
+        sleepUntil(startAt);
+        String signUp = "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD
+                + "\",\"confirmPassword\":\"" + PASSWORD + "\"}";
+        if (!call("POST /api/user/create", HttpMethod.POST, "/api/user/create", signUp, null).getStatusCode()
+                .is2xxSuccessful()) {
+            return;
+        }
+        String login = "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}";
+        String token = call("POST /login", HttpMethod.POST, "/login", login, null)
+                .getHeaders().getFirst(SecurityConstants.HEADER_STRING);
+        if (token == null) {
+            return;
+        }
+        call("GET /api/user/{username}", HttpMethod.GET, "/api/user/" + username, null, token);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.currentTimeMillis() < deadline) {
+            long itemId = ITEM_IDS[random.nextInt(ITEM_IDS.length)];
+            call("GET /api/item", HttpMethod.GET, "/api/item", null, token);
+            call("GET /api/item/search", HttpMethod.GET,
+                    "/api/item/search?q=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], null, token);
+            call("GET /api/item/{id}", HttpMethod.GET, "/api/item/" + itemId, null, token);
+            think(random);
+            String addToCart = "{\"username\":\"" + username + "\",\"itemId\":" + itemId
+                    + ",\"quantity\":" + (1 + random.nextInt(3)) + "}";
+            call("POST /api/cart/addToCart", HttpMethod.POST, "/api/cart/addToCart", addToCart, token);
+            think(random);
+            call("POST /api/order/submit/{username}", HttpMethod.POST, "/api/order/submit/" + username, null, token);
+            think(random);
+            call("GET /api/order/history/{username}/page", HttpMethod.GET,
+                    "/api/order/history/" + username + "/page?limit=20", null, token);
+            think(random);
+        }
+    }
+
+    private ResponseEntity<String> call(String endpoint, HttpMethod method, String path, String body, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        if (token != null) {
+            headers.set(SecurityConstants.HEADER_STRING, token);
+        }
+        if (path.startsWith("/api/order/submit/")) {
+            headers.set(OrderController.IDEMPOTENCY_KEY, UUID.randomUUID().toString());
+        }
+        long start = System.nanoTime();
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.exchange("http://localhost:" + port + path, method,
+                    new HttpEntity<>(body, headers), String.class);
+        } catch (ResourceAccessException e) {
+            report.record(endpoint, System.nanoTime() - start, false);
+            return ResponseEntity.status(599).build();
+        }
+        report.record(endpoint, System.nanoTime() - start, response.getStatusCode().is2xxSuccessful());
+        return response;
+    }
+
+    private void think(ThreadLocalRandom random) {
+        if (thinkTimeMillis > 0) {
+            sleep(random.nextLong(thinkTimeMillis * 2));
+        }
+    }
+
+    private static void sleepUntil(long time) {
+        sleep(time - System.currentTimeMillis());
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RestTemplate createRestTemplate() {
+        RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+        restTemplate.setErrorHandler(new ResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) throws IOException {
+                return false;
+            }
+
+            @Override
+            public void handleError(ClientHttpResponse response) {
+            }
+        });
+        return restTemplate;
+    }
+}
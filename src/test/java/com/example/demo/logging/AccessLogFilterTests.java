@@ -0,0 +1,69 @@
+package com.example.demo.logging;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccessLogFilterTests {
+    private Logger accessLog = mock(Logger.class);
+
+    @Test
+    public void unsampledRequest_isNotLogged_Test() throws Exception {
+        // Stub
+        when(accessLog.isInfoEnabled()).thenReturn(true);
+        AccessLogFilter filter = new AccessLogFilter(accessLog, 0.0, 60000);
+
+        // Test
+        for (int i = 0; i < 10; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/item"), new MockHttpServletResponse(),
+                    new MockFilterChain());
+        }
+
+        // Verify
+        verify(accessLog, never()).info(Mockito.anyString(), Mockito.<Object[]>any());
+    }
+
+    @Test
+    public void serverError_isAlwaysLogged_Test() throws Exception {
+        // Stub
+        when(accessLog.isInfoEnabled()).thenReturn(true);
+        AccessLogFilter filter = new AccessLogFilter(accessLog, 0.0, 60000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        // Test
+        filter.doFilter(new MockHttpServletRequest("POST", "/login"), response, new MockFilterChain());
+
+        // Verify
+        verify(accessLog, times(1)).info(Mockito.anyString(),
+                Mockito.eq("POST"), Mockito.eq("/login"), Mockito.eq(503), Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    public void fullSampling_logsEveryRequest_Test() throws Exception {
+        // Stub
+        when(accessLog.isInfoEnabled()).thenReturn(true);
+        AccessLogFilter filter = new AccessLogFilter(accessLog, 1.0, 60000);
+
+        // Test
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/item"), new MockHttpServletResponse(),
+                    new MockFilterChain());
+        }
+
+        // Verify
+        verify(accessLog, times(3)).info(Mockito.anyString(),
+                Mockito.eq("GET"), Mockito.eq("/api/item"), Mockito.eq(200), Mockito.anyLong(), Mockito.any());
+    }
+}
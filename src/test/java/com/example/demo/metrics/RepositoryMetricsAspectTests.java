@@ -0,0 +1,65 @@
+package com.example.demo.metrics;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepositoryMetricsAspectTests {
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserRepository target = mock(UserRepository.class);
+    private UserRepository userRepository;
+
+    @Before
+    public void setup() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.addAspect(new RepositoryMetricsAspect(meterRegistry));
+        userRepository = proxyFactory.getProxy();
+    }
+
+    @Test
+    public void declaredMethod_isTimed_Test() {
+        // Stub
+        when(target.findByUsername("test")).thenReturn(new User());
+
+        // Test
+        userRepository.findByUsername("test");
+        userRepository.findByUsername("test");
+
+        // Verify
+        Timer timer = meterRegistry.get(RepositoryMetricsAspect.METRIC_NAME)
+                .tag("repository", "UserRepository")
+                .tag("method", "findByUsername")
+                .tag("exception", "none")
+                .timer();
+        Assert.assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void inheritedMethodAndFailure_areTimed_Test() {
+        // Stub
+        when(target.save(null)).thenThrow(new IllegalArgumentException());
+
+        // Test
+        try {
+            userRepository.save(null);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // Verify
+        Timer timer = meterRegistry.get(RepositoryMetricsAspect.METRIC_NAME)
+                .tag("repository", "UserRepository")
+                .tag("method", "save")
+                .tag("exception", "IllegalArgumentException")
+                .timer();
+        Assert.assertEquals(1, timer.count());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.ItemStock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// The takes run on several threads, each in its own transaction, so the stock
+// row has to be committed rather than rolled back after the test.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ItemStockRepositoryTests {
+    @Autowired
+    private ItemStockRepository itemStockRepository;
+
+    @After
+    public void tearDown() {
+        itemStockRepository.deleteAll();
+    }
+
+    @Test
+    public void take_refusesMoreThanIsLeft_Test() {
+        itemStockRepository.save(new ItemStock(1L, 3));
+
+        Assert.assertEquals(1, itemStockRepository.take(1L, 2));
+        Assert.assertEquals(0, itemStockRepository.take(1L, 2));
+        Assert.assertEquals(0, itemStockRepository.take(2L, 1));
+
+        Assert.assertEquals(1, itemStockRepository.findById(1L).get().getQuantity());
+    }
+
+    @Test
+    public void take_concurrentOrdersNeverOversell_Test() throws Exception {
+        itemStockRepository.save(new ItemStock(1L, 50));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> itemStockRepository.take(1L, 1)));
+            }
+            int taken = 0;
+            for (Future<Integer> result : results) {
+                taken += result.get();
+            }
+
+            Assert.assertEquals(50, taken);
+            Assert.assertEquals(0, itemStockRepository.findById(1L).get().getQuantity());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class OrderRepositoryTests {
+    private static final int ORDERS = 20;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+
+    private User user;
+
+    @Before
+    public void setup() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        Item widget = entityManager.persist(createStubItem("Widget"));
+        Item gadget = entityManager.persist(createStubItem("Gadget"));
+        user = new User();
+        user.setUsername("test");
+        user.setPassword("hashed");
+        entityManager.persist(user);
+        for (int i = 0; i < ORDERS; i++) {
+            UserOrder order = new UserOrder();
+            order.setUser(user);
+            order.addLine(widget, 2, 199);
+            order.addLine(gadget, 1, 199);
+            order.setTotal(new BigDecimal("5.97"));
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void save_writesOneLinePerDistinctItem_Test() {
+        // Stub
+        Item widget = entityManager.persist(createStubItem("Bulk widget"));
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.addItem(widget, 500);
+        entityManager.flush();
+        statistics.clear();
+
+        // Test
+        UserOrder order = orderRepository.saveAndFlush(UserOrder.createFromCart(cart));
+
+        // Verify
+        Assert.assertEquals(2, statistics.getEntityInsertCount());
+        Assert.assertEquals(1, order.getLines().size());
+        Assert.assertEquals(500, order.getUnits());
+        Assert.assertEquals(new BigDecimal("995.00"), order.getTotal());
+    }
+
+    @Test
+    public void findLinesByUser_returnsLinesInOneQuery_Test() {
+        // Test
+        List<OrderResponse> orders = OrderResponse.fromLines(orderRepository.findLinesByUser(user));
+
+        // Verify
+        Assert.assertEquals(ORDERS, orders.size());
+        for (OrderResponse order : orders) {
+            Assert.assertEquals(2, order.getLines().size());
+            Assert.assertEquals(2, order.getLines().get(0).getQuantity());
+            Assert.assertEquals("Widget", order.getLines().get(0).getName());
+            Assert.assertEquals(1, order.getLines().get(1).getQuantity());
+            Assert.assertEquals(new BigDecimal("1.99"), order.getLines().get(0).getPrice());
+        }
+        Assert.assertEquals(1, statistics.getPrepareStatementCount());
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void findLinesByUser_smallerPayloadThanEntities_Test() throws Exception {
+        // Stub
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        List<UserOrder> entities = entityManager.getEntityManager()
+                .createQuery("select distinct o from UserOrder o join fetch o.lines l join fetch l.item where o.user = :user",
+                        UserOrder.class)
+                .setParameter("user", user)
+                .getResultList();
+        int entityBytes = objectMapper.writeValueAsBytes(entities).length;
+
+        // Test
+        int responseBytes = objectMapper.writeValueAsBytes(
+                OrderResponse.fromLines(orderRepository.findLinesByUser(user))).length;
+
+        // Verify
+        Assert.assertTrue(responseBytes + " >= " + entityBytes, responseBytes < entityBytes);
+    }
+
+    @Test
+    public void findHistoryIds_rangeAndKeyset_Test() {
+        // Stub
+        Instant base = Instant.parse("2019-06-01T00:00:00Z");
+        Long[] ids = new Long[4];
+        for (int i = 0; i < ids.length; i++) {
+            UserOrder order = new UserOrder();
+            order.setUser(user);
+            order.setTotal(BigDecimal.ONE);
+            order.setCreatedAt(base.plusSeconds(i));
+            ids[i] = entityManager.persistAndGetId(order, Long.class);
+        }
+        Instant from = base.plusSeconds(1);
+        Instant to = base.plusSeconds(4);
+
+        // Test
+        List<Long> firstPage = orderRepository.findHistoryIds(user, from, to, to, Long.MIN_VALUE, PageRequest.of(0, 2));
+        List<Long> secondPage = orderRepository.findHistoryIds(user, from, to,
+                base.plusSeconds(2), ids[2], PageRequest.of(0, 2));
+
+        // Verify
+        Assert.assertEquals(Arrays.asList(ids[3], ids[2]), firstPage);
+        Assert.assertEquals(Arrays.asList(ids[1]), secondPage);
+    }
+
+    private Item createStubItem(String name) {
+        Item item = new Item();
+        item.setName(name);
+        item.setPrice(new BigDecimal("1.99"));
+        item.setDescription(name + " description");
+        return item;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+// Hibernate never caches rows inserted by a transaction that has not committed
+// yet, so these tests commit their data instead of rolling it back.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserRepositoryTests {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+
+    private User user;
+
+    @Before
+    public void setup() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+
+        user = new User();
+        user.setUsername("cached");
+        user.setPassword("hashed");
+        user = userRepository.save(user);
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+    }
+
+    @After
+    public void tearDown() {
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    public void findByUsername_repeatedLookupIsServedFromCache_Test() {
+        User first = userRepository.findByUsername("cached");
+        long statements = statistics.getPrepareStatementCount();
+
+        User second = userRepository.findByUsername("cached");
+
+        Assert.assertEquals(first.getId(), second.getId());
+        Assert.assertEquals(statements, statistics.getPrepareStatementCount());
+        Assert.assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        Assert.assertEquals(1, statistics.getDomainDataRegionStatistics("user").getHitCount());
+    }
+
+    @Test
+    public void findByUsername_unknownUserIsNull_Test() {
+        Assert.assertNull(userRepository.findByUsername("missing"));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.orders;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderPipelineTests {
+    private OrderRepository orderRepository = mock(OrderRepository.class);
+    private PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TestStage inventory = new TestStage("inventory");
+    private TestStage confirmation = new TestStage("confirmation");
+    private OrderPipeline orderPipeline;
+
+    @Before
+    public void setup() {
+        when(transactionManager.getTransaction(Mockito.any())).thenReturn(mock(TransactionStatus.class));
+        orderPipeline = new OrderPipeline(orderRepository, transactionManager, Arrays.asList(inventory, confirmation),
+                new MockEnvironment().withProperty("orders.pipeline.stages.inventory.workers", "3"),
+                meterRegistry, 1, 10, 0, 100);
+        orderPipeline.start();
+    }
+
+    @After
+    public void tearDown() {
+        orderPipeline.stop();
+    }
+
+    @Test
+    public void accept_movesOrderThroughEveryStage_Test() {
+        // Stub
+        UserOrder order = createOrder(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        // Test
+        orderPipeline.accept(order);
+
+        // Verify
+        awaitStage("confirmation", "confirmed");
+        Assert.assertEquals(UserOrder.Status.CONFIRMED, order.getStatus());
+        Assert.assertNull(order.getStage());
+        Assert.assertEquals(1, inventory.processed.get());
+        Assert.assertEquals(1, confirmation.processed.get());
+    }
+
+    @Test
+    public void accept_stageFailureFailsOrder_Test() {
+        // Stub
+        UserOrder order = createOrder(1L);
+        inventory.failure = new IllegalStateException("Not enough stock");
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        // Test
+        orderPipeline.accept(order);
+
+        // Verify
+        awaitStage("inventory", "failed");
+        Assert.assertEquals(UserOrder.Status.FAILED, order.getStatus());
+        Assert.assertEquals("Not enough stock", order.getFailureReason());
+        Assert.assertEquals(0, confirmation.processed.get());
+    }
+
+    @Test
+    public void accept_waitsForWorkersToStart_Test() throws Exception {
+        // Stub
+        UserOrder order = createOrder(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        orderPipeline.stop();
+
+        // Test
+        orderPipeline.accept(order);
+        Thread.sleep(50);
+
+        // Verify
+        Assert.assertFalse(orderPipeline.isRunning());
+        Assert.assertEquals(0, inventory.processed.get());
+        Assert.assertEquals(1.0, meterRegistry.get("orders.pipeline.queue.depth").tag("stage", "inventory")
+                .gauge().value(), 0.0);
+        orderPipeline.start();
+        awaitStage("confirmation", "confirmed");
+        Assert.assertEquals(UserOrder.Status.CONFIRMED, order.getStatus());
+    }
+
+    @Test
+    public void recoverStalled_requeuesAtWaitingStage_Test() {
+        // Stub
+        UserOrder order = createOrder(1L);
+        order.advanceTo("confirmation");
+        UserOrder orphan = createOrder(2L);
+        orphan.advanceTo("payment");
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findById(2L)).thenReturn(Optional.of(orphan));
+        when(orderRepository.findStalled(Mockito.eq(UserOrder.Status.PENDING), Mockito.any(), Mockito.any()))
+                .thenReturn(Arrays.asList(stalled(1L, "confirmation"), stalled(2L, "payment")))
+                .thenReturn(Collections.emptyList());
+
+        // Test
+        int requeued = orderPipeline.recoverStalled();
+
+        // Verify
+        Assert.assertEquals(1, requeued);
+        awaitStage("confirmation", "confirmed");
+        Assert.assertEquals(UserOrder.Status.CONFIRMED, order.getStatus());
+        Assert.assertEquals(0, inventory.processed.get());
+        Assert.assertEquals(UserOrder.Status.FAILED, orphan.getStatus());
+        Assert.assertEquals(1.0, meterRegistry.get("orders.pipeline.recovered").counter().count(), 0.0);
+    }
+
+    private void awaitStage(String stage, String outcome) {
+        await(() -> meterRegistry.find("orders.pipeline.stage").tag("stage", stage).tag("outcome", outcome)
+                .timer() != null && meterRegistry.get("orders.pipeline.in-flight").gauge().value() == 0.0);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out waiting for the pipeline", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static UserOrder createOrder(Long id) {
+        User user = new User();
+        user.setUsername("test");
+        UserOrder order = new UserOrder();
+        order.setId(id);
+        order.setUser(user);
+        order.setTotal(new BigDecimal("1.99"));
+        return order;
+    }
+
+    private static OrderRepository.StalledOrder stalled(Long id, String stage) {
+        return new OrderRepository.StalledOrder() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getStage() {
+                return stage;
+            }
+        };
+    }
+
+    private static final class TestStage implements OrderStage {
+        private final String name;
+        private final AtomicInteger processed = new AtomicInteger();
+        private volatile RuntimeException failure;
+
+        private TestStage(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void process(UserOrder order) {
+            if (failure != null) {
+                throw failure;
+            }
+            processed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+public class JWTVerificationCacheTests {
+    private SimpleMeterRegistry meterRegistry;
+    private JWTVerificationCache verificationCache;
+
+    @Before
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        verificationCache = new JWTVerificationCache(meterRegistry, 100);
+    }
+
+    @Test
+    public void verify_repeatedTokenServedFromCache_Test() {
+        String token = createToken("test-user", 60_000);
+
+        Assert.assertEquals("test-user", verificationCache.verify(token));
+        Assert.assertEquals("test-user", verificationCache.verify(token));
+
+        Assert.assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count(), 0.0);
+        Assert.assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count(), 0.0);
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void verify_badSignature_Fail_Test() {
+        String token = JWT.create()
+                .withSubject("test-user")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(Algorithm.HMAC512("not-our-secret".getBytes()));
+
+        verificationCache.verify(token);
+    }
+
+    @Test
+    public void verify_cachedTokenStopsWorkingAtExpiry_Test() throws InterruptedException {
+        String token = createToken("test-user", 1_000);
+        Assert.assertEquals("test-user", verificationCache.verify(token));
+
+        Thread.sleep(2_000);
+
+        try {
+            verificationCache.verify(token);
+            Assert.fail("expired token was accepted");
+        } catch (JWTVerificationException expected) {
+            // expected
+        }
+    }
+
+    private String createToken(String subject, long validForMillis) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + validForMillis))
+                .sign(SecurityConstants.ALGORITHM);
+    }
+}
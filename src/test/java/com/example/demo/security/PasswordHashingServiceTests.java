@@ -0,0 +1,74 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PasswordHashingServiceTests {
+    private BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingService hashingService;
+
+    @Before
+    public void setup() {
+        hashingService = new PasswordHashingService(encoder, meterRegistry, 1, 1, 200);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        hashingService.shutdown();
+    }
+
+    @Test
+    public void encodeAsync_Success_Test() {
+        when(encoder.encode("password")).thenReturn("hashed");
+
+        Assert.assertEquals("hashed", hashingService.encodeAsync("password").join());
+        Assert.assertEquals(1, meterRegistry.get("security.hashing.latency").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    public void encodeAsync_saturated_Fail_Test() {
+        when(encoder.encode(Mockito.anyString())).thenAnswer(invocation -> {
+            release.await();
+            return "hashed";
+        });
+
+        hashingService.encodeAsync("running");
+        hashingService.encodeAsync("queued");
+        CompletableFuture<String> rejected = hashingService.encodeAsync("rejected");
+
+        try {
+            rejected.join();
+            Assert.fail("saturated pool accepted work");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof HashingCapacityExceededException);
+        }
+        Assert.assertEquals(1.0, meterRegistry.get("security.hashing.rejected").counter().count(), 0.0);
+        Assert.assertEquals(1.0, meterRegistry.get("security.hashing.queue.depth").gauge().value(), 0.0);
+    }
+
+    @Test(expected = HashingCapacityExceededException.class)
+    public void matches_timesOutWhenBusy_Fail_Test() {
+        when(encoder.encode(Mockito.anyString())).thenAnswer(invocation -> {
+            release.await();
+            return "hashed";
+        });
+        hashingService.encodeAsync("running");
+
+        hashingService.matches("password", "hashed");
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.security;
+
+import com.example.demo.TestUtils;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserDetailsServiceImplTests {
+    private UserDetailsServiceImpl userDetailsService;
+    private UserRepository userRepository = mock(UserRepository.class);
+
+    @Before
+    public void setup() {
+        userDetailsService = new UserDetailsServiceImpl(new SimpleMeterRegistry(), 30, 5, 100);
+        TestUtils.injectObject(userDetailsService, "userRepository", userRepository);
+    }
+
+    @Test
+    public void loadUserByUsername_cached_Test() {
+        // Stub
+        when(userRepository.findByUsername("test-user")).thenReturn(createStubUser());
+
+        // Test
+        UserDetails first = userDetailsService.loadUserByUsername("test-user");
+        ((org.springframework.security.core.userdetails.User) first).eraseCredentials();
+        UserDetails second = userDetailsService.loadUserByUsername("test-user");
+
+        // Verify
+        Assert.assertEquals("hashed-password", second.getPassword());
+        Assert.assertNotSame(first, second);
+        verify(userRepository, times(1)).findByUsername("test-user");
+    }
+
+    @Test
+    public void loadUserByUsername_unknownUserCached_Test() {
+        for (int i = 0; i < 3; i++) {
+            try {
+                userDetailsService.loadUserByUsername("nobody");
+                Assert.fail("unknown user was loaded");
+            } catch (UsernameNotFoundException expected) {
+                // expected
+            }
+        }
+
+        verify(userRepository, times(1)).findByUsername("nobody");
+    }
+
+    @Test
+    public void evict_reloadsCreatedUser_Test() {
+        try {
+            userDetailsService.loadUserByUsername("test-user");
+            Assert.fail("unknown user was loaded");
+        } catch (UsernameNotFoundException expected) {
+            // expected
+        }
+        when(userRepository.findByUsername("test-user")).thenReturn(createStubUser());
+
+        userDetailsService.evict("test-user");
+
+        Assert.assertEquals("hashed-password", userDetailsService.loadUserByUsername("test-user").getPassword());
+    }
+
+    private User createStubUser() {
+        User testUser = new User();
+        testUser.setUsername("test-user");
+        testUser.setPassword("hashed-password");
+        testUser.setId(0);
+        return testUser;
+    }
+}